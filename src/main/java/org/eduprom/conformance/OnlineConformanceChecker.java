@@ -0,0 +1,382 @@
+package org.eduprom.conformance;
+
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.model.XEvent;
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetEdge;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetNode;
+import org.processmining.models.graphbased.directed.petrinet.elements.Arc;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.semantics.petrinet.Marking;
+import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental conformance checker for event streams.
+ *
+ * Every case keeps a bounded frontier of (marking, cost) pairs that approximates the optimal prefix
+ * alignment of the events seen so far: an event is either synchronized with an enabled transition
+ * carrying its label (possibly after silent transitions and a bounded number of model moves), or
+ * becomes a log move. Since the frontier, the silent closure and the model move look-ahead are all
+ * bounded, the work per event does not depend on the length of the case.
+ *
+ * The fitness of a case is 1 - cost / events, where a log move and a model move both cost 1.
+ * Idle cases are evicted in least recently updated order, either when the number of cases exceeds the
+ * configured maximum or when a case did not receive an event for longer than the idle timeout.
+ */
+public class OnlineConformanceChecker {
+
+    //region nested classes
+
+    private static class State {
+        private final int[] marking;
+        private final int cost;
+
+        private State(int[] marking, int cost){
+            this.marking = marking;
+            this.cost = cost;
+        }
+    }
+
+    private static class CaseState {
+        private List<State> frontier;
+        private int events;
+        private long lastAccess;
+
+        private double getFitness(){
+            if (events == 0){
+                return 1.0;
+            }
+            int cost = frontier.stream().mapToInt(x -> x.cost).min().orElse(events);
+            return 1.0 - Math.min(cost, events) / (double) events;
+        }
+    }
+
+    private static class MarkingKey {
+        private final int[] marking;
+        private final int hash;
+
+        private MarkingKey(int[] marking){
+            this.marking = marking;
+            this.hash = Arrays.hashCode(marking);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof MarkingKey) && Arrays.equals(marking, ((MarkingKey) o).marking);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    //endregion
+
+    //region private members
+
+    private static final int DEFAULT_MAX_STATES = 16;
+    private static final int DEFAULT_MODEL_MOVES = 1;
+    private static final int MAX_SILENT_CLOSURE = 256;
+
+    private final int[] initialMarking;
+    private final String[] labels;
+    private final int[][] pre;
+    private final int[][] post;
+    private final int[] silent;
+    private final Map<String, int[]> transitionsByLabel;
+
+    private final int maxCases;
+    private final long idleTimeoutMillis;
+    private final int maxStates;
+    private final int maxModelMoves;
+    private final LinkedHashMap<String, CaseState> cases;
+    private long evicted;
+
+    //endregion
+
+    //region private methods
+
+    private static int getWeight(PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge){
+        return edge instanceof Arc ? ((Arc) edge).getWeight() : 1;
+    }
+
+    private boolean isEnabled(int[] marking, int transition){
+        int[] in = pre[transition];
+        for (int i = 0; i < in.length; i += 2){
+            if (marking[in[i]] < in[i + 1]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int[] fire(int[] marking, int transition){
+        int[] result = marking.clone();
+        int[] in = pre[transition];
+        for (int i = 0; i < in.length; i += 2){
+            result[in[i]] -= in[i + 1];
+        }
+        int[] out = post[transition];
+        for (int i = 0; i < out.length; i += 2){
+            result[out[i]] += out[i + 1];
+        }
+        return result;
+    }
+
+    /**
+     * @return the markings reachable from the given marking by firing silent transitions only
+     */
+    private List<int[]> silentClosure(int[] marking){
+        List<int[]> closure = new ArrayList<>();
+        Map<MarkingKey, Boolean> visited = new HashMap<>();
+        Deque<int[]> queue = new ArrayDeque<>();
+        queue.add(marking);
+        visited.put(new MarkingKey(marking), true);
+        while (!queue.isEmpty() && closure.size() < MAX_SILENT_CLOSURE){
+            int[] current = queue.poll();
+            closure.add(current);
+            for (int transition : silent){
+                if (isEnabled(current, transition)){
+                    int[] next = fire(current, transition);
+                    if (visited.putIfAbsent(new MarkingKey(next), true) == null){
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        return closure;
+    }
+
+    private void add(Map<MarkingKey, State> states, int[] marking, int cost){
+        MarkingKey key = new MarkingKey(marking);
+        State existing = states.get(key);
+        if (existing == null || existing.cost > cost){
+            states.put(key, new State(marking, cost));
+        }
+    }
+
+    private void sync(Map<MarkingKey, State> next, int[] marking, int cost, int[] candidates, int modelMoves){
+        for (int[] closed : silentClosure(marking)){
+            boolean synced = false;
+            for (int transition : candidates){
+                if (isEnabled(closed, transition)){
+                    add(next, fire(closed, transition), cost);
+                    synced = true;
+                }
+            }
+
+            if (!synced && modelMoves > 0){
+                for (int transition = 0; transition < labels.length; transition++){
+                    if (labels[transition] != null && isEnabled(closed, transition)){
+                        sync(next, fire(closed, transition), cost + 1, candidates, modelMoves - 1);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<State> step(List<State> frontier, String activity){
+        Map<MarkingKey, State> next = new HashMap<>();
+        int[] candidates = transitionsByLabel.getOrDefault(activity, new int[0]);
+        for (State state : frontier){
+            //log move
+            add(next, state.marking, state.cost + 1);
+            if (candidates.length > 0){
+                sync(next, state.marking, state.cost, candidates, maxModelMoves);
+            }
+        }
+
+        List<State> states = new ArrayList<>(next.values());
+        states.sort((x, y) -> Integer.compare(x.cost, y.cost));
+        return states.size() > maxStates ? new ArrayList<>(states.subList(0, maxStates)) : states;
+    }
+
+    private void evictIdle(long now){
+        if (idleTimeoutMillis <= 0){
+            return;
+        }
+
+        Iterator<CaseState> it = cases.values().iterator();
+        while (it.hasNext()){
+            CaseState state = it.next();
+            if (now - state.lastAccess <= idleTimeoutMillis){
+                //ordered by last update, every following case was updated later
+                break;
+            }
+            it.remove();
+            evicted++;
+        }
+    }
+
+    //endregion
+
+    //region constructors
+
+    public OnlineConformanceChecker(ProcessTree2Petrinet.PetrinetWithMarkings model, int maxCases, long idleTimeoutMillis){
+        this(model, maxCases, idleTimeoutMillis, DEFAULT_MAX_STATES, DEFAULT_MODEL_MOVES);
+    }
+
+    /**
+     * @param model the model to check against, e.g. {@code AbstractPetrinetMiner.getDiscoveredPetriNet()}
+     * @param maxCases maximal number of cases tracked at once, the least recently updated case is evicted beyond it
+     * @param idleTimeoutMillis cases idle for longer than this are evicted, 0 disables the timeout
+     * @param maxStates maximal number of (marking, cost) states kept per case
+     * @param maxModelMoves maximal number of consecutive model moves tried before synchronizing an event
+     */
+    public OnlineConformanceChecker(ProcessTree2Petrinet.PetrinetWithMarkings model, int maxCases, long idleTimeoutMillis,
+                                    int maxStates, int maxModelMoves){
+        Petrinet net = model.petrinet;
+        List<Place> places = new ArrayList<>(net.getPlaces());
+        Map<Place, Integer> placeIndex = new HashMap<>();
+        for (int i = 0; i < places.size(); i++){
+            placeIndex.put(places.get(i), i);
+        }
+
+        List<Transition> transitions = new ArrayList<>(net.getTransitions());
+        this.labels = new String[transitions.size()];
+        this.pre = new int[transitions.size()][];
+        this.post = new int[transitions.size()][];
+        List<Integer> silentTransitions = new ArrayList<>();
+        Map<String, List<Integer>> byLabel = new HashMap<>();
+        for (int i = 0; i < transitions.size(); i++){
+            Transition transition = transitions.get(i);
+            List<Integer> in = new ArrayList<>();
+            for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getInEdges(transition)){
+                in.add(placeIndex.get(edge.getSource()));
+                in.add(getWeight(edge));
+            }
+            List<Integer> out = new ArrayList<>();
+            for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getOutEdges(transition)){
+                out.add(placeIndex.get(edge.getTarget()));
+                out.add(getWeight(edge));
+            }
+            pre[i] = in.stream().mapToInt(Integer::intValue).toArray();
+            post[i] = out.stream().mapToInt(Integer::intValue).toArray();
+
+            if (transition.isInvisible()){
+                silentTransitions.add(i);
+            }
+            else {
+                labels[i] = transition.getLabel();
+                byLabel.computeIfAbsent(labels[i], x -> new ArrayList<>()).add(i);
+            }
+        }
+        this.silent = silentTransitions.stream().mapToInt(Integer::intValue).toArray();
+        this.transitionsByLabel = new HashMap<>();
+        byLabel.forEach((label, indices) -> transitionsByLabel.put(label, indices.stream().mapToInt(Integer::intValue).toArray()));
+
+        Marking marking = model.initialMarking;
+        this.initialMarking = new int[places.size()];
+        for (int i = 0; i < places.size(); i++){
+            initialMarking[i] = marking.occurrences(places.get(i));
+        }
+
+        this.maxCases = maxCases;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxStates = maxStates;
+        this.maxModelMoves = maxModelMoves;
+        //insertion ordered, process() re-inserts a case so the order is the one of the last updates
+        this.cases = new LinkedHashMap<String, CaseState>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CaseState> eldest) {
+                if (size() > OnlineConformanceChecker.this.maxCases){
+                    evicted++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Updates the case with a new event.
+     *
+     * @return the fitness of the case after the event
+     */
+    public synchronized double process(String caseId, String activity){
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+
+        CaseState state = cases.remove(caseId);
+        if (state == null){
+            state = new CaseState();
+            state.frontier = Collections.singletonList(new State(initialMarking, 0));
+        }
+        cases.put(caseId, state);
+
+        state.frontier = step(state.frontier, activity);
+        state.events++;
+        state.lastAccess = now;
+        return state.getFitness();
+    }
+
+    /**
+     * Updates the case with a new event, its activity is the concept name of the event.
+     *
+     * @return the fitness of the case after the event
+     * @throws IllegalArgumentException if the event has no concept name
+     */
+    public double process(String caseId, XEvent event){
+        String activity = XConceptExtension.instance().extractName(event);
+        if (activity == null){
+            throw new IllegalArgumentException(String.format("event of case %s has no concept name", caseId));
+        }
+        return process(caseId, activity);
+    }
+
+    /**
+     * @return the fitness of the case, or null if the case is unknown or was evicted
+     */
+    public synchronized Double getFitness(String caseId){
+        CaseState state = cases.get(caseId);
+        return state == null ? null : state.getFitness();
+    }
+
+    /**
+     * Stops tracking a case, typically once its last event was seen.
+     *
+     * @return the final fitness of the case, or null if the case is unknown or was evicted
+     */
+    public synchronized Double complete(String caseId){
+        CaseState state = cases.remove(caseId);
+        return state == null ? null : state.getFitness();
+    }
+
+    /**
+     * @return the fitness of every tracked case, from the least to the most recently updated
+     */
+    public synchronized Map<String, Double> getFitness(){
+        Map<String, Double> fitness = new LinkedHashMap<>();
+        for (Map.Entry<String, CaseState> entry : cases.entrySet()){
+            fitness.put(entry.getKey(), entry.getValue().getFitness());
+        }
+        return fitness;
+    }
+
+    public synchronized int getCaseCount(){
+        return cases.size();
+    }
+
+    public synchronized long getEvictedCount(){
+        return evicted;
+    }
+
+    //endregion
+}
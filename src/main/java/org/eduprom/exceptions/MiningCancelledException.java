@@ -0,0 +1,10 @@
+package org.eduprom.exceptions;
+
+/**
+ * Thrown when a computation stops because the time or memory budget of the mining run is exhausted.
+ */
+public class MiningCancelledException extends MiningException {
+    public MiningCancelledException(String message) {
+        super(message);
+    }
+}
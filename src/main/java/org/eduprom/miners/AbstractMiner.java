@@ -6,6 +6,7 @@ import org.eduprom.exceptions.LogFileNotFoundException;
 import org.eduprom.exceptions.MiningException;
 import org.eduprom.exceptions.ParsingException;
 import org.eduprom.utils.LogHelper;
+import org.eduprom.utils.PromContexts;
 import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -56,6 +57,17 @@ public abstract class AbstractMiner implements IMiner {
         logHelper.checkFile(filename);
     }
 
+    /**
+     * In-memory miner, its log is given by {@link #setLog(XLog)} or per call. It does not access the file system
+     * and shares the ProM context of all in-memory miners, so it is cheap to create.
+     */
+    protected AbstractMiner() {
+        name = getClass().getSimpleName();
+        logHelper = new LogHelper();
+        promContext = PromContexts.getContext();
+        promPluginContext = PromContexts.newPluginContext(getName());
+    }
+
     //endregion
 
     //region public methods
@@ -63,21 +75,7 @@ public abstract class AbstractMiner implements IMiner {
     @Override
     public void mine() {
         try {
-            Stopwatch stopwatch = Stopwatch.createStarted();
-            logger.info(String.format("Started training the log file: %s using the algorithm: %s",
-                    filename, getName()));
-            readLog();
-            //logHelper.printLogGrouped(Level.FINE, log);
-            logger.info(String.format("reading event log finished successfully,log size: %s", log.size()));
-
-            mineSpecific();
-            logger.info(String.format("Training the log file: %s using the algorithm: %s has completed successfully"
-                    , filename, getName()));
-            stopwatch.stop();
-            this.elapsedMiliseconds = stopwatch.elapsed(TimeUnit.MILLISECONDS);
-
-
-
+            train();
         } catch (MiningException e) {
             String message = String.format("Training the log file: %s using the algorithm: %s has failed"
                     , filename, getName());
@@ -90,6 +88,13 @@ public abstract class AbstractMiner implements IMiner {
         return name;
     }
 
+    /**
+     * @param canceller polled by the mining algorithm, a cancelled run stops as soon as possible
+     */
+    public void setCanceller(Canceller canceller){
+        this.canceller = canceller;
+    }
+
     //endregion
 
     //region protected methods
@@ -106,8 +111,29 @@ public abstract class AbstractMiner implements IMiner {
         return canceller;
     }
 
+    /**
+     * Reads the log and mines it, same as {@link #mine()} for callers that have to know whether it failed.
+     */
+    protected void train() throws MiningException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        logger.info(String.format("Started training the log file: %s using the algorithm: %s",
+                filename, getName()));
+        readLog();
+        //logHelper.printLogGrouped(Level.FINE, log);
+        logger.info(String.format("reading event log finished successfully,log size: %s", log.size()));
+
+        mineSpecific();
+        logger.info(String.format("Training the log file: %s using the algorithm: %s has completed successfully"
+                , filename, getName()));
+        stopwatch.stop();
+        this.elapsedMiliseconds = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    }
+
     protected void readLog() throws ParsingException {
         if (this.log == null){
+            if (filename == null){
+                throw new ParsingException(String.format("the in-memory miner %s has no log", getName()));
+            }
             this.log = logHelper.read(filename);
         }
     }
@@ -37,6 +37,14 @@ public abstract class AbstractPetrinetMiner extends AbstractMiner {
         petrinetHelper = new PetrinetHelper(getPromPluginContext(), getClassifier());
     }
 
+    /**
+     * In-memory miner, see {@link AbstractMiner#AbstractMiner()}.
+     */
+    protected AbstractPetrinetMiner() {
+        super();
+        petrinetHelper = new PetrinetHelper(getPromPluginContext(), getClassifier());
+    }
+
     //endregion
 
     //region protected methods
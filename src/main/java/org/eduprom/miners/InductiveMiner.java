@@ -26,6 +26,14 @@ public class InductiveMiner extends AbstractPetrinetMiner {
 		this.parameters = parameters;
 	}
 
+	/**
+	 * In-memory miner, see {@link AbstractMiner#AbstractMiner()}.
+	 */
+	public InductiveMiner(MiningParameters parameters) {
+		super();
+		this.parameters = parameters;
+	}
+
 
 
 	@Override
@@ -1,12 +1,14 @@
 package org.eduprom.miners.adaptiveNoise;
 
 import org.deckfour.xes.classification.XEventNameClassifier;
+import org.deckfour.xes.info.XLogInfo;
 import org.deckfour.xes.model.XLog;
 import org.eduprom.benchmarks.IBenchmarkableMiner;
 import org.eduprom.benchmarks.configuration.NoiseThreshold;
 import org.eduprom.benchmarks.configuration.Weights;
 import org.eduprom.entities.CrossValidationPartition;
 import org.eduprom.exceptions.LogFileNotFoundException;
+import org.eduprom.exceptions.MiningCancelledException;
 import org.eduprom.exceptions.MiningException;
 import org.eduprom.miners.AbstractMiner;
 import org.eduprom.miners.AbstractPetrinetMiner;
@@ -15,15 +17,24 @@ import org.eduprom.miners.adaptiveNoise.IntermediateMiners.MiningResult;
 import org.eduprom.miners.adaptiveNoise.IntermediateMiners.NoiseInductiveMiner;
 import org.eduprom.miners.adaptiveNoise.benchmarks.AdaBenchmark;
 import org.eduprom.miners.adaptiveNoise.configuration.AdaptiveNoiseConfiguration;
+import org.eduprom.miners.adaptiveNoise.configuration.ThresholdSelection;
 import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceStore;
 import org.eduprom.miners.adaptiveNoise.conformance.IAdaptiveNoiseConformanceObject;
 import org.eduprom.miners.adaptiveNoise.conformance.IConformanceContext;
+import org.eduprom.miners.adaptiveNoise.conformance.ThresholdMemo;
 import org.eduprom.miners.adaptiveNoise.filters.FilterAlgorithm;
 import org.eduprom.miners.adaptiveNoise.filters.FilterResult;
+import org.eduprom.miners.adaptiveNoise.search.SuccessiveHalving;
 import org.eduprom.partitioning.ILogSplitter;
 import org.eduprom.partitioning.MiningParametersLogSplitting;
 import org.eduprom.partitioning.Partitioning;
+import org.eduprom.utils.ConcurrentProcessTree;
+import org.eduprom.utils.Deadline;
+import org.eduprom.utils.MiningPool;
 import org.eduprom.utils.PetrinetHelper;
+import org.eduprom.utils.PersistentProcessTree;
+import org.eduprom.utils.ProcessTreeInterner;
 import org.processmining.framework.packages.PackageManager;
 import org.processmining.log.parameters.LowFrequencyFilterParameters;
 import org.processmining.plugins.InductiveMiner.conversion.ReduceTree;
@@ -33,10 +44,7 @@ import org.processmining.plugins.InductiveMiner.mining.IMLogInfo;
 import org.processmining.plugins.InductiveMiner.mining.MinerState;
 import org.processmining.plugins.InductiveMiner.mining.MinerStateBase;
 import org.processmining.plugins.InductiveMiner.mining.MiningParametersIMf;
-import org.processmining.plugins.InductiveMiner.mining.baseCases.BaseCaseFinder;
 import org.processmining.plugins.InductiveMiner.mining.cuts.Cut;
-import org.processmining.plugins.InductiveMiner.mining.cuts.CutFinder;
-import org.processmining.plugins.InductiveMiner.mining.fallthrough.FallThrough;
 import org.processmining.plugins.InductiveMiner.mining.interleaved.Interleaved;
 import org.processmining.plugins.InductiveMiner.mining.interleaved.MaybeInterleaved;
 import org.processmining.plugins.InductiveMiner.mining.logSplitter.LogSplitter;
@@ -51,19 +59,25 @@ import org.processmining.processtree.Node;
 import org.processmining.processtree.ProcessTree;
 import org.processmining.processtree.impl.AbstractBlock;
 import org.processmining.processtree.impl.AbstractTask;
-import org.processmining.processtree.impl.ProcessTreeImpl;
 import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
+import static org.eduprom.utils.InductiveMinerHelper.findBaseCases;
+import static org.eduprom.utils.InductiveMinerHelper.findCut;
+import static org.eduprom.utils.InductiveMinerHelper.findFallThrough;
+import static org.eduprom.utils.InductiveMinerHelper.splitLog;
 import static org.eduprom.miners.adaptiveNoise.AdaptiveNoiseMiner.FITNESS_KEY;
 
 
@@ -71,11 +85,19 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
 
     protected final static Logger logger = Logger.getLogger(AbstractMiner.class.getName());
 
-    private Map<Float, MinerState> parametersIMfMap;
+    //the parameters of every threshold, every node and task of the recursion gets a miner state of its own
+    private Map<Float, MiningParametersIMf> parametersIMfMap;
+    private ThresholdMemo thresholdMemo = new ThresholdMemo();
     private MiningParametersIMf parameters;
     private AdaptiveNoiseConfiguration adaptiveNoiseConfiguration;
     private ProcessTree bestTree;
     private ConformanceInfo conformanceInfo;
+    private ConformanceStore conformanceStore;
+    private Deadline deadline = Deadline.none();
+    private IMLog rootLog;
+    private ProcessTree incumbent;
+    private ConformanceInfo incumbentInfo;
+    private double qualityGap;
 
     @Override
     protected ProcessTree2Petrinet.PetrinetWithMarkings minePetrinet() throws MiningException {
@@ -83,32 +105,78 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
     }
 
 
-    protected static PackageManager.Canceller _canceller = new PackageManager.Canceller() {
-
-        @Override
-        public boolean isCancelled() {
-            // This for passing the canceller to ProM interface
-            // We don't cancel since we do not work interactively
-            return false;
-        }
-    };
+    //polled by the inductive miner, cancelled once the time or memory budget of the current run is exhausted
+    protected final PackageManager.Canceller _canceller = () -> deadline.isCancelled();
 
     public AdaMiner(String filename, AdaptiveNoiseConfiguration adaptiveNoiseConfiguration) throws LogFileNotFoundException {
         super(filename);
         //this.noiseThreshold = noiseThreshold;
         this.parametersIMfMap = new HashMap<>();
         this.adaptiveNoiseConfiguration = adaptiveNoiseConfiguration;
+        this.conformanceStore = adaptiveNoiseConfiguration.openConformanceStore();
         float[] thresholds = adaptiveNoiseConfiguration.getNoiseThresholds();
         this.parameters = new MiningParametersIMf();
         for (float threshold: thresholds) {
-            this.parametersIMfMap.put(threshold, new MinerState(new MiningParametersIMf() {{
+            this.parametersIMfMap.put(threshold, new MiningParametersIMf() {{
                 setNoiseThreshold(threshold);
-            }}, _canceller));
+            }});
         }
     }
 
+    /**
+     * @return a miner of its own for a task that mines with the given threshold, in-memory miners are cheap
+     */
+    private NoiseInductiveMiner newThresholdMiner(float threshold){
+        NoiseInductiveMiner miner = new NoiseInductiveMiner(threshold, adaptiveNoiseConfiguration.isPreExecuteFilter());
+        miner.setCanceller(_canceller);
+        return miner;
+    }
+
 
     public ProcessTree discover(XLog xlog) throws MiningException {
+        deadline = adaptiveNoiseConfiguration.startDeadline();
+        petrinetHelper.setDeadline(deadline);
+        incumbent = null;
+        incumbentInfo = null;
+        qualityGap = 0;
+        try {
+            return discoverAnytime(xlog);
+        } finally {
+            deadline.close();
+            petrinetHelper.setDeadline(null);
+        }
+    }
+
+    /**
+     * Keeps the best complete tree mined on the whole log, returned if the run is cut short.
+     */
+    private synchronized void offerIncumbent(ProcessTree tree, ConformanceInfo info){
+        if (incumbentInfo == null || info.getPsi() > incumbentInfo.getPsi()){
+            incumbent = tree;
+            incumbentInfo = info;
+        }
+    }
+
+    /**
+     * @return the incumbent, null if no complete tree was evaluated before the budget was exhausted
+     */
+    private ProcessTree returnIncumbent(MinerState minerState){
+        minerState.shutdownThreadPools();
+        if (incumbent == null){
+            logger.warning(String.format("no tree was evaluated before the run stopped (%s)", deadline.getReason()));
+            return null;
+        }
+
+        this.bestTree = incumbent;
+        this.conformanceInfo = incumbentInfo;
+        //the optimum cannot exceed the maximal psi
+        this.qualityGap = Math.max(0, new ConformanceInfo(adaptiveNoiseConfiguration.getWeights()).maxValue() - incumbentInfo.getPsi());
+        logger.info(String.format("run stopped after %d ms (%s), returning the incumbent: conformance %s, quality gap at most %f, tree: %s",
+                deadline.getElapsed(), deadline.getReason(), incumbentInfo, qualityGap, incumbent));
+        return this.bestTree;
+    }
+
+    private ProcessTree discoverAnytime(XLog xlog) throws MiningException {
         logger.info(String.format("Miners with %d noise thresholds %s are optional",
                 adaptiveNoiseConfiguration.getNoiseThresholds().length, this.parametersIMfMap.keySet().stream()
                         .map(x-> String.valueOf(x.floatValue())).collect(Collectors.joining (","))));
@@ -121,49 +189,39 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
         if (this.parameters.isRepairLifeCycle()) {
             log = LifeCycles.preProcessLog(log);
         }
+        rootLog = log;
 
-        //create process tree
+        //create process tree, sibling subtrees are mined concurrently
 
-        ProcessTree tree = new ProcessTreeImpl();
+        ProcessTree tree = new ConcurrentProcessTree();
         MinerState minerState = new MinerState(this.parameters, _canceller);
         Node root = mineNode(log, tree, minerState);
 
         if (_canceller.isCancelled()) {
-            minerState.shutdownThreadPools();
-            return null;
+            return returnIncumbent(minerState);
         }
 
         root.setProcessTree(tree);
         tree.setRoot(root);
-        discoveredTrees.putIfAbsent(tree.toString(), tree);
+        discoveredTrees.intern(tree);
 
 
         logger.info(String.format("Found total %d trees", discoveredTrees.size()));
+        logger.info(String.format("threshold memo: %d sublogs, %d hits, %d misses",
+                thresholdMemo.size(), thresholdMemo.getHits(), thresholdMemo.getMisses()));
 
 
-        Map<ProcessTree, ConformanceInfo> treeConformanceInfoEntry = discoveredTrees.values().stream().collect(Collectors.toMap(x->x, x -> {
-            try {
-                return AdaBenchmark.getPsi(petrinetHelper, x, xlog, xlog, weights);
-            } catch (MiningException e) {
-                throw new RuntimeException();
-            }
-        }));
-
-        for(String treeRepresentation : discoveredTrees.keySet()){
-            logger.info(String.format("discovered tree: %s", treeRepresentation));
+        Map<ProcessTree, ConformanceInfo> treeConformanceInfoEntry = evaluateDiscoveredTrees(xlog);
+        if (treeConformanceInfoEntry.isEmpty()){
+            return returnIncumbent(minerState);
         }
+
         Map.Entry<ProcessTree, ConformanceInfo> bestModel = treeConformanceInfoEntry.entrySet().stream()
                 .max(Comparator.comparing(x->x.getValue().getPsi())).get();
         this.bestTree = bestModel.getKey();
         this.conformanceInfo = bestModel.getValue();
         logger.info(String.format("Best AdA model: conformance %s, tree: %s", bestModel.getValue(), bestModel.getKey().toString()));
 
-
-        if (_canceller.isCancelled()) {
-            minerState.shutdownThreadPools();
-            return null;
-        }
-
         debug("discovered tree " + bestModel.getKey().getRoot(), minerState);
 
         //reduce the tree
@@ -178,47 +236,167 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
 
         minerState.shutdownThreadPools();
 
+        return this.bestTree;
+    }
+
+    private final ProcessTreeInterner discoveredTrees = new ProcessTreeInterner();
+
+    /**
+     * Measures the discovered trees on the whole log in parallel on the shared pool, the info of the log is
+     * computed once for all of them.
+     *
+     * @return the conformance of the measured trees, trees that were pruned or cancelled are missing
+     */
+    private Map<ProcessTree, ConformanceInfo> evaluateDiscoveredTrees(XLog xlog) throws MiningException {
+        XLogInfo logInfo = petrinetHelper.getLogInfo(xlog);
+        DoubleAccumulator best = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        //every run measures copies of its own, the interned trees stay untouched
+        List<ProcessTree> trees = new ArrayList<>();
+        for (PersistentProcessTree discoveredTree : discoveredTrees.getTrees()){
+            ProcessTree tree = discoveredTree.toProcessTree();
+            logger.info(String.format("discovered tree: %s", tree));
+            trees.add(tree);
+        }
+        List<ConformanceInfo> infos = MiningPool.map(trees, discoveredTree -> evaluateDiscoveredTree(discoveredTree, xlog, logInfo, best));
+
+        Map<ProcessTree, ConformanceInfo> treeConformanceInfo = new HashMap<>();
+        for (int i = 0; i < trees.size(); i++) {
+            if (infos.get(i) != null) {
+                treeConformanceInfo.put(trees.get(i), infos.get(i));
+            }
+        }
+        logger.info(String.format("measured %d of %d discovered trees, the others were pruned or cancelled",
+                treeConformanceInfo.size(), trees.size()));
+        return treeConformanceInfo;
+    }
+
+    /**
+     * Measures a discovered tree on the whole log, which is the training and the validation log at once, see
+     * {@link AdaBenchmark#getPsi(ConformanceStore, PetrinetHelper, ProcessTree, XLog, XLogInfo, Weights, double)}.
+     * The precision is skipped if the tree cannot beat the best tree measured so far even with a perfect precision.
+     *
+     * @param best the best psi measured so far, updated with the psi of the tree
+     * @return the conformance of the tree, null if it was pruned or the run was cancelled
+     */
+    private ConformanceInfo evaluateDiscoveredTree(ProcessTree discoveredTree, XLog xlog, XLogInfo logInfo,
+                                                   DoubleAccumulator best) throws MiningException {
+        try {
+            ConformanceInfo info = AdaBenchmark.getPsi(conformanceStore, petrinetHelper, discoveredTree, xlog, logInfo,
+                    adaptiveNoiseConfiguration.getWeights(), best.get());
+            if (info != null) {
+                best.accumulate(info.getPsi());
+            }
+            return info;
+        } catch (MiningCancelledException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Mines the training folds with the given threshold and measures the tree against the validation fold.
+     *
+     * @return the tree and its conformance, null if the run was cancelled
+     */
+    private Map.Entry<ProcessTree, ConformanceInfo> evaluateThreshold(float threshold, XLog trainingLog, XLog validationLog) throws MiningException {
         if (_canceller.isCancelled()) {
             return null;
         }
 
-        return this.bestTree;
+        try {
+            ProcessTree subLogTree = newThresholdMiner(threshold).mineProcessTree(trainingLog).getProcessTree();
+            ConformanceInfo conformanceInfo = AdaBenchmark.getPsi(conformanceStore, petrinetHelper, subLogTree, trainingLog, validationLog, adaptiveNoiseConfiguration.getWeights());
+            return new AbstractMap.SimpleEntry<>(subLogTree, conformanceInfo);
+        } catch (MiningCancelledException e) {
+            return null;
+        }
     }
 
-    private Map<String, ProcessTree> discoveredTrees = new HashMap<>();
+    private static XLog sample(XLog log, int size){
+        return new CrossValidationPartition(log.subList(0, Math.min(size, log.size())), log.getAttributes()).getLog();
+    }
 
-    private Map.Entry<Float, MinerState> obtainMinerState(IMLog log) throws MiningException {
-        ConformanceInfo bestCutConformanceInfo = null;
-        Map.Entry<Float, MinerState> bestCut = null;
-        for(Map.Entry<Float, MinerState> mfEntry: parametersIMfMap.entrySet()) {
-            NoiseInductiveMiner miner = new NoiseInductiveMiner(filename, mfEntry.getKey(), adaptiveNoiseConfiguration.isPreExecuteFilter());
-            XLog cLog = log.toXLog();
-            /*
-            int partitionSize = (int)Math.round(log.size() / 10.0);
-            if (partitionSize == 0){
-                partitionSize = 1;
+    /**
+     * Drops thresholds by successive halving on growing prefixes of the folds, which are shuffled already.
+     * The samples are measured without the conformance store, their results are of no use to other runs.
+     *
+     * @return the thresholds that are worth an evaluation on the whole folds
+     */
+    private List<Map.Entry<Float, MiningParametersIMf>> selectThresholds(List<Map.Entry<Float, MiningParametersIMf>> entries,
+                                                             XLog trainingLog, XLog validationLog) throws MiningException {
+        Weights weights = adaptiveNoiseConfiguration.getWeights();
+        ConformanceInfo bounds = new ConformanceInfo(weights);
+        SuccessiveHalving<Map.Entry<Float, MiningParametersIMf>> halving = new SuccessiveHalving<>(
+                adaptiveNoiseConfiguration.getHalvingSampleSize(), trainingLog.size(),
+                adaptiveNoiseConfiguration.getHalvingConfidence(), bounds.maxValue() - bounds.minValue());
+
+        List<Map.Entry<Float, MiningParametersIMf>> survivors = halving.select(entries, (mfEntry, sampleSize) -> {
+            if (_canceller.isCancelled()) {
+                return null;
             }
-            List<CrossValidationPartition> origin =  this.logHelper.crossValidationSplit(cLog, partitionSize);
-            CrossValidationPartition[] validationPartitions = CrossValidationPartition.take(origin, 1);
-            origin = CrossValidationPartition.exclude(origin, validationPartitions);
 
-            XLog validationLog = CrossValidationPartition.bind(validationPartitions).getLog();
-            XLog trainingLog = partitionSize > 1 ? CrossValidationPartition.bind(origin).getLog() : validationLog;
-            */
+            //the validation sample keeps the proportion of the folds
+            XLog trainingSample = sample(trainingLog, sampleSize);
+            XLog validationSample = sample(validationLog,
+                    (int) Math.max(1, (long) sampleSize * validationLog.size() / trainingLog.size()));
+            try {
+                ProcessTree tree = newThresholdMiner(mfEntry.getKey()).mineProcessTree(trainingSample).getProcessTree();
+                return AdaBenchmark.getPsi(petrinetHelper, tree, trainingSample, validationSample, weights).getPsi();
+            } catch (MiningCancelledException e) {
+                return null;
+            }
+        });
 
-            List<CrossValidationPartition> origin =  this.logHelper.crossValidationSplit(cLog, 10);
-            CrossValidationPartition[] validationPartitions = CrossValidationPartition.take(origin, 1);
-            origin = CrossValidationPartition.exclude(origin, validationPartitions);
+        logger.info(String.format("successive halving kept %d of %d thresholds after %d rounds (%d sample scores): %s",
+                survivors.size(), entries.size(), halving.getRounds(), halving.getScored(),
+                survivors.stream().map(x -> String.valueOf(x.getKey())).collect(Collectors.joining(","))));
+        return survivors;
+    }
 
-            XLog validationLog = CrossValidationPartition.bind(validationPartitions).getLog();
-            XLog trainingLog = CrossValidationPartition.bind(origin).getLog();
+    /**
+     * Selects the threshold of a node of the recursion.
+     *
+     * @return the threshold with a miner state of its own, whose thread pools the caller shuts down, null if the
+     * run was cancelled
+     */
+    private Map.Entry<Float, MinerState> obtainMinerState(IMLog log) throws MiningException {
+        if (_canceller.isCancelled()) {
+            return null;
+        }
+
+        XLog cLog = log.toXLog();
+        //identical sublogs of other branches (or of other runs on the same log) were measured already
+        String fingerprint = String.format("%s:%s", logHelper.hash(cLog), adaptiveNoiseConfiguration.isPreExecuteFilter());
+        Map<Float, ThresholdMemo.Evaluation> memoized = thresholdMemo.get(fingerprint);
+        //thresholds the selection dropped on this sublog before stay dropped, without selecting again
+        String selection = getSelectionKey();
+        Set<Float> rejected = selection != null ? thresholdMemo.getRejected(fingerprint, selection) : null;
+        List<Map.Entry<Float, MiningParametersIMf>> entries = new ArrayList<>(parametersIMfMap.entrySet());
+        List<Map.Entry<Float, MiningParametersIMf>> missing = entries.stream()
+                .filter(x -> !memoized.containsKey(x.getKey()) && (rejected == null || !rejected.contains(x.getKey())))
+                .collect(Collectors.toList());
+        Map<Float, Map.Entry<ProcessTree, ConformanceInfo>> evaluations = new HashMap<>();
+        memoized.forEach((threshold, evaluation) -> evaluations.put(threshold, new AbstractMap.SimpleEntry<>(
+                evaluation.getTree(), evaluation.getConformanceInfo(adaptiveNoiseConfiguration.getWeights()))));
+        if (!missing.isEmpty()) {
+            evaluateThresholds(cLog, fingerprint, missing, rejected == null ? selection : null, evaluations);
+        }
+
+        ConformanceInfo bestCutConformanceInfo = null;
+        Map.Entry<Float, MiningParametersIMf> bestCut = null;
+        for (Map.Entry<Float, MiningParametersIMf> mfEntry : entries) {
+            Map.Entry<ProcessTree, ConformanceInfo> result = evaluations.get(mfEntry.getKey());
+            if (result == null) {
+                //cancelled, the thresholds evaluated so far still decide
+                continue;
+            }
 
-            ProcessTree subLogTree = miner.mineProcessTree(trainingLog).getProcessTree();
-            //logger.info(String.format("evaluating conformance for noise threshold: %f", mfEntry.getKey()));
-            ConformanceInfo conformanceInfo = AdaBenchmark.getPsi(petrinetHelper, subLogTree, trainingLog, validationLog, adaptiveNoiseConfiguration.getWeights());
-            //logger.info(String.format("finished evaluating conformance for noise threshold: %f", mfEntry.getKey()));
+            ProcessTree subLogTree = result.getKey();
+            ConformanceInfo conformanceInfo = result.getValue();
+            if (log == rootLog){
+                //trees mined on the whole log are complete models
+                offerIncumbent(subLogTree, conformanceInfo);
+            }
             logger.info(String.format("%f threshold, conformance info: %s, tree: %s",  mfEntry.getKey(), conformanceInfo, subLogTree.toString()));
-            //discoveredTrees.putIfAbsent(subLogTree.toString(), subLogTree);
 
             if (bestCut == null || conformanceInfo.getPsi() > bestCutConformanceInfo.getPsi()){
                 bestCutConformanceInfo = conformanceInfo;
@@ -226,7 +404,71 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
             }
         }
 
-        return bestCut;
+        return bestCut != null ? new AbstractMap.SimpleEntry<>(bestCut.getKey(), new MinerState(bestCut.getValue(), _canceller)) : null;
+    }
+
+    /**
+     * @return identifies the threshold selection and the settings its result depends on, null if every
+     * threshold is evaluated
+     */
+    private String getSelectionKey(){
+        if (adaptiveNoiseConfiguration.getThresholdSelection() != ThresholdSelection.SUCCESSIVE_HALVING) {
+            return null;
+        }
+        return String.format("%s:%d:%f:%s", ThresholdSelection.SUCCESSIVE_HALVING,
+                adaptiveNoiseConfiguration.getHalvingSampleSize(), adaptiveNoiseConfiguration.getHalvingConfidence(),
+                adaptiveNoiseConfiguration.getWeights());
+    }
+
+    /**
+     * Evaluates the given thresholds on the same folds of the log, in parallel, and memoizes the results. With a
+     * selection only the surviving thresholds are evaluated, the dropped ones are memoized as rejected.
+     *
+     * @param selection the selection to run first, see {@link #getSelectionKey()}, null to evaluate every threshold
+     */
+    private void evaluateThresholds(XLog cLog, String fingerprint, List<Map.Entry<Float, MiningParametersIMf>> entries,
+                                    String selection,
+                                    Map<Float, Map.Entry<ProcessTree, ConformanceInfo>> evaluations) throws MiningException {
+        //the folds do not depend on the threshold, every threshold is measured on the same split
+        /*
+        int partitionSize = (int)Math.round(log.size() / 10.0);
+        if (partitionSize == 0){
+            partitionSize = 1;
+        }
+        List<CrossValidationPartition> origin =  this.logHelper.crossValidationSplit(cLog, partitionSize);
+        CrossValidationPartition[] validationPartitions = CrossValidationPartition.take(origin, 1);
+        origin = CrossValidationPartition.exclude(origin, validationPartitions);
+
+        XLog validationLog = CrossValidationPartition.bind(validationPartitions).getLog();
+        XLog trainingLog = partitionSize > 1 ? CrossValidationPartition.bind(origin).getLog() : validationLog;
+        */
+
+        List<CrossValidationPartition> origin =  this.logHelper.crossValidationSplit(cLog, 10);
+        CrossValidationPartition[] validationPartitions = CrossValidationPartition.take(origin, 1);
+        origin = CrossValidationPartition.exclude(origin, validationPartitions);
+
+        XLog validationLog = CrossValidationPartition.bind(validationPartitions).getLog();
+        XLog trainingLog = CrossValidationPartition.bind(origin).getLog();
+
+        if (selection != null) {
+            List<Map.Entry<Float, MiningParametersIMf>> survivors = selectThresholds(entries, trainingLog, validationLog);
+            if (!_canceller.isCancelled()) {
+                thresholdMemo.reject(fingerprint, selection, entries.stream().filter(x -> !survivors.contains(x))
+                        .map(Map.Entry::getKey).collect(Collectors.toList()));
+            }
+            entries = survivors;
+        }
+
+        //the thresholds are evaluated together on the shared pool
+        List<Map.Entry<ProcessTree, ConformanceInfo>> results = MiningPool.map(entries,
+                mfEntry -> evaluateThreshold(mfEntry.getKey(), trainingLog, validationLog));
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<ProcessTree, ConformanceInfo> result = results.get(i);
+            if (result != null) {
+                evaluations.put(entries.get(i).getKey(), result);
+                thresholdMemo.put(fingerprint, entries.get(i).getKey(), result.getKey(), result.getValue());
+            }
+        }
     }
 
     public Node mineNode(IMLog log, ProcessTree tree, MinerState minerState) throws MiningException {
@@ -253,11 +495,18 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
         }
 
         Map.Entry<Float, MinerState> bestCut = obtainMinerState(log);
+        if (bestCut == null) {
+            return null;
+        }
         logger.info("started evaluating miners");
 
         logger.info(String.format("Best cut of %f noise threshold", bestCut.getKey()));
-        Cut cut = findCut(log, logInfo, bestCut.getValue());
-        return handleCut(bestCut.getValue(), cut, logInfo, log, tree);
+        try {
+            Cut cut = findCut(log, logInfo, bestCut.getValue());
+            return handleCut(bestCut.getValue(), cut, logInfo, log, tree);
+        } finally {
+            bestCut.getValue().shutdownThreadPools();
+        }
     }
 
     private Node handleCut(MinerState minerState, Cut cut, IMLogInfo logInfo, IMLog log, ProcessTree tree) throws MiningException {
@@ -287,37 +536,27 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
             }
             addNode(tree, newNode);
 
-            //recurse
-            if (cut.getOperator() != Cut.Operator.loop) {
-                for (IMLog sublog : splitResult.sublogs) {
-                    Node child = mineNode(sublog, tree, minerState);
-
-                    if (minerState.isCancelled()) {
-                        return null;
-                    }
+            //recurse, the sibling sublogs are independent
+            List<Node> children = mineChildren(splitResult.sublogs, tree, minerState);
+            if (children == null) {
+                return null;
+            }
 
+            if (cut.getOperator() != Cut.Operator.loop) {
+                for (Node child : children) {
                     addChild(newNode, child, minerState);
                 }
             } else {
                 //loop needs special treatment:
                 //ProcessTree requires a ternary loop
-                Iterator<IMLog> it = splitResult.sublogs.iterator();
-
-                //mine body
-                IMLog firstSublog = it.next();
-                {
-                    Node firstChild = mineNode(firstSublog, tree, minerState);
+                Iterator<Node> it = children.iterator();
 
-                    if (minerState.isCancelled()) {
-                        return null;
-                    }
+                //body
+                addChild(newNode, it.next(), minerState);
 
-                    addChild(newNode, firstChild, minerState);
-                }
-
-                //mine redo parts by, if necessary, putting them under an xor
+                //redo parts by, if necessary, putting them under an xor
                 Block redoXor;
-                if (splitResult.sublogs.size() > 2) {
+                if (children.size() > 2) {
                     redoXor = new AbstractBlock.Xor("");
                     addNode(tree, redoXor);
                     addChild(newNode, redoXor, minerState);
@@ -325,14 +564,7 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
                     redoXor = newNode;
                 }
                 while (it.hasNext()) {
-                    IMLog sublog = it.next();
-                    Node child = mineNode(sublog, tree, minerState);
-
-                    if (minerState.isCancelled()) {
-                        return null;
-                    }
-
-                    addChild(redoXor, child, minerState);
+                    addChild(redoXor, it.next(), minerState);
                 }
 
                 //add tau as third child
@@ -350,17 +582,38 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
 
         } else {
             Map.Entry<Float, MinerState> fallThroughMinerState = obtainMinerState(log);
+            if (fallThroughMinerState == null) {
+                return null;
+            }
             logger.info(String.format("FallThrough noise: %f", fallThroughMinerState.getKey()));
-            //cut is not valid; fall through
-            Node result = findFallThrough(log, logInfo, tree, fallThroughMinerState.getValue());
+            try {
+                //cut is not valid; fall through
+                Node result = findFallThrough(log, logInfo, tree, fallThroughMinerState.getValue());
 
-            result = postProcess(result, log, logInfo, fallThroughMinerState.getValue());
+                result = postProcess(result, log, logInfo, fallThroughMinerState.getValue());
 
-            debug(" discovered node " + result, fallThroughMinerState.getValue());
-            return result;
+                debug(" discovered node " + result, fallThroughMinerState.getValue());
+                return result;
+            } finally {
+                fallThroughMinerState.getValue().shutdownThreadPools();
+            }
         }
     }
 
+    /**
+     * Mines the sublogs of a cut, sublogs of at least {@link AdaptiveNoiseConfiguration#getForkMinTraces()}
+     * traces as separate tasks of the shared pool and the others in the current thread.
+     *
+     * @return the children in the order of the sublogs, null if the run was cancelled
+     */
+    private List<Node> mineChildren(List<IMLog> sublogs, ProcessTree tree, MinerState minerState) throws MiningException {
+        int forkMinTraces = adaptiveNoiseConfiguration.getForkMinTraces();
+        List<Node> children = MiningPool.fork(sublogs,
+                sublog -> sublogs.size() > 1 && sublog.size() >= forkMinTraces,
+                sublog -> mineNode(sublog, tree, minerState));
+        return minerState.isCancelled() ? null : children;
+    }
+
     private static Node postProcess(Node newNode, IMLog log, IMLogInfo logInfo, MinerState minerState) {
         for (PostProcessor processor : minerState.parameters.getPostProcessors()) {
             newNode = processor.postProcess(newNode, log, logInfo, minerState);
@@ -402,63 +655,6 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
         tree.addNode(node);
     }
 
-    public static Node findBaseCases(IMLog log, IMLogInfo logInfo, ProcessTree tree, MinerState minerState) {
-        Node n = null;
-        Iterator<BaseCaseFinder> it = minerState.parameters.getBaseCaseFinders().iterator();
-        while (n == null && it.hasNext()) {
-
-            if (minerState.isCancelled()) {
-                return null;
-            }
-
-            n = it.next().findBaseCases(log, logInfo, tree, minerState);
-        }
-        return n;
-    }
-
-    public static Cut findCut(IMLog log, IMLogInfo logInfo, MinerState minerState) {
-        Cut c = null;
-        Iterator<CutFinder> it = minerState.parameters.getCutFinders().iterator();
-        while (it.hasNext() && (c == null || !c.isValid())) {
-
-            if (minerState.isCancelled()) {
-                return null;
-            }
-
-            c = it.next().findCut(log, logInfo, minerState);
-        }
-        return c;
-    }
-
-    public static Node findFallThrough(IMLog log, IMLogInfo logInfo, ProcessTree tree, MinerState minerState) {
-
-        Node n = null;
-        Iterator<FallThrough> it = minerState.parameters.getFallThroughs().iterator();
-        while (n == null && it.hasNext()) {
-
-            if (minerState.isCancelled()) {
-                return null;
-            }
-
-            n = it.next().fallThrough(log, logInfo, tree, minerState);
-        }
-        logger.info(String.format("Fall Through: %s", n));
-        return n;
-    }
-
-    public static LogSplitter.LogSplitResult splitLog(IMLog log, IMLogInfo logInfo, Cut cut, MinerState minerState) {
-        LogSplitter.LogSplitResult result = minerState.parameters.getLogSplitter().split(log, logInfo, cut, minerState);
-
-        if (minerState.isCancelled()) {
-            return null;
-        }
-
-        //merge the discarded events of this log splitting into the global discarded events list
-        minerState.discardedEvents.addAll(result.discardedEvents);
-
-        return result;
-    }
-
     public static void debug(Object x, MinerState minerState) {
         if (minerState.parameters.isDebug()) {
             System.out.println(x.toString());
@@ -495,4 +691,24 @@ public class AdaMiner extends AbstractPetrinetMiner implements IBenchmarkableMin
     public ProcessTree getProcessTree() {
         return this.bestTree;
     }
+
+    /**
+     * @param thresholdMemo memo of the threshold evaluations per sublog, share it between miners of the same log
+     *                      to reuse their evaluations across weights
+     */
+    public void setThresholdMemo(ThresholdMemo thresholdMemo) {
+        this.thresholdMemo = thresholdMemo;
+    }
+
+    public ThresholdMemo getThresholdMemo() {
+        return thresholdMemo;
+    }
+
+    /**
+     * @return an upper bound of how much the psi of the returned tree may be improved, 0 unless the run was cut
+     * short by the time or memory budget
+     */
+    public double getQualityGap() {
+        return qualityGap;
+    }
 }
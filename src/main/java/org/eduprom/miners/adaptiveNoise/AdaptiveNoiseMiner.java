@@ -1,6 +1,7 @@
 package org.eduprom.miners.adaptiveNoise;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.deckfour.xes.model.XLog;
@@ -8,32 +9,51 @@ import org.deckfour.xes.model.XTrace;
 import org.deckfour.xes.model.impl.XLogImpl;
 import org.eduprom.benchmarks.IBenchmarkableMiner;
 import org.eduprom.entities.CrossValidationPartition;
+import org.eduprom.exceptions.MiningCancelledException;
 import org.eduprom.exceptions.MiningException;
 import org.eduprom.miners.AbstractPetrinetMiner;
 import org.eduprom.miners.adaptiveNoise.IntermediateMiners.MiningResult;
 import org.eduprom.miners.adaptiveNoise.IntermediateMiners.NoiseInductiveMiner;
 import org.eduprom.miners.adaptiveNoise.configuration.AdaptiveNoiseConfiguration;
+import org.eduprom.miners.adaptiveNoise.configuration.CandidateSearch;
+import org.eduprom.miners.adaptiveNoise.configuration.SurrogatePolicy;
 import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceStore;
 import org.eduprom.miners.adaptiveNoise.conformance.IAdaptiveNoiseConformanceObject;
 import org.eduprom.miners.adaptiveNoise.conformance.IConformanceContext;
+import org.eduprom.miners.adaptiveNoise.conformance.PartitionConformanceCache;
 import org.eduprom.miners.adaptiveNoise.entities.Change;
 import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
-import org.eduprom.miners.adaptiveNoise.entities.TreeChangesSet;
+import org.eduprom.miners.adaptiveNoise.search.BranchAndBoundSearch;
+import org.eduprom.miners.adaptiveNoise.search.ChangeSetEnumerator;
+import org.eduprom.miners.adaptiveNoise.search.ICandidateEvaluator;
+import org.eduprom.miners.adaptiveNoise.search.LocalSearch;
+import org.eduprom.miners.adaptiveNoise.search.PsiSurrogate;
+import org.eduprom.miners.adaptiveNoise.search.SearchCheckpoint;
 import org.eduprom.partitioning.ILogSplitter;
 import org.eduprom.partitioning.Partitioning;
+import org.eduprom.utils.Deadline;
+import org.eduprom.utils.MiningPool;
 import org.eduprom.utils.PetrinetHelper;
+import org.eduprom.utils.ProcessTreeKey;
 import org.processmining.framework.plugin.PluginContext;
 import org.processmining.plugins.petrinet.replayresult.PNRepResult;
 import org.processmining.plugins.pnalignanalysis.conformance.AlignmentPrecGenRes;
 import org.processmining.processtree.ProcessTree;
 import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 import static java.util.Collections.reverseOrder;
@@ -44,18 +64,43 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
 
     public static final String FITNESS_KEY = PNRepResult.TRACEFITNESS;
 
+    /**
+     * Conformance store kind of a fitness and precision on the train log and generalization on the test log.
+     */
+    public static final String TRAIN_TEST_KIND = "train-test";
+
+    /**
+     * Conformance store kind of the psi of {@link org.eduprom.miners.adaptiveNoise.benchmarks.AdaBenchmark#getPsi},
+     * its generalization is not measured on the test log so it must not be mixed with {@link #TRAIN_TEST_KIND}.
+     */
+    public static final String ADA_KIND = "ada";
+
+    private static final int CROSS_VALIDATION_FOLDS = 10;
+    private static final long CROSS_VALIDATION_SEED = 42;
+    private static final long LOCAL_SEARCH_SEED = 42;
+
     //endregion
 
     //region private members
 
     private List<NoiseInductiveMiner> miners;
-    private final NoiseInductiveMiner partitionMiner = new NoiseInductiveMiner(filename, 0f, false);
+    private final NoiseInductiveMiner partitionMiner = new NoiseInductiveMiner(0f, false);
     private AdaptiveNoiseConfiguration configuration;
-    private TreeChanges bestModel;
+    private final AtomicReference<TreeChanges> bestModel = new AtomicReference<>();
     private ConformanceInfo conformanceInfo;
 
-    private Map<String, TreeChanges> changes;
+    private Map<ProcessTreeKey, TreeChanges> changes;
     private XLog validationLog;
+    private PartitionConformanceCache partitionConformanceCache;
+    private ConformanceStore conformanceStore;
+    private Deadline deadline = Deadline.none();
+    private volatile boolean searchCutShort;
+    //the highest partial psi of the candidates the deadline left unevaluated
+    private final DoubleAccumulator unevaluatedBound = new DoubleAccumulator(Math::max, 0);
+    private double qualityGap;
+    private SearchCheckpoint checkpoint;
+    private boolean resume;
+    private volatile PsiSurrogate surrogate;
 
     //endregion
 
@@ -67,19 +112,52 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
                 this.configuration.getWeights().getGeneralizationWeight());
     }
 
+    /**
+     * Mines and measures a single cross validation fold, with a miner and a helper of its own.
+     */
+    private ConformanceInfo computeFold(NoiseInductiveMiner miner, XLog trainLog, XLog testLog) throws MiningException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        NoiseInductiveMiner foldMiner = new NoiseInductiveMiner(miner.getNoiseThreshold(), miner.isFilterPreExecution());
+        foldMiner.setCanceller(deadline);
+        PetrinetHelper helper = foldMiner.getHelper();
+        helper.setDeadline(petrinetHelper.getDeadline());
+        helper.setReduceBeforeAlignment(petrinetHelper.isReduceBeforeAlignment());
+
+        MiningResult result = foldMiner.mineProcessTree(trainLog);
+        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinet(result.getProcessTree());
+
+        ConformanceInfo candidate = getNewConformanceInfo();
+
+        PNRepResult alignment = helper.getCompleteAlignment(trainLog, res.petrinet, res.initialMarking, res.finalMarking);
+        double fitness = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
+        candidate.setFitness(fitness);
+
+        double precision = helper.getPrecision(trainLog, res.petrinet, alignment, res.initialMarking, res.finalMarking);
+        candidate.setPrecision(precision);
+
+        PNRepResult testAlignment = helper.getCompleteAlignment(testLog, res.petrinet, res.initialMarking, res.finalMarking);
+        double generalization = Double.parseDouble(testAlignment.getInfo().get(FITNESS_KEY).toString());
+        candidate.setGeneralization(generalization);
+
+        logger.log(Level.FINE, String.format("cross validation fold of %d traces took %d ms",
+                testLog.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+        return candidate;
+    }
+
     private void modifyPsiCrossValidation(IAdaptiveNoiseConformanceObject object) throws MiningException {
-        Collections.shuffle(object.getLog());
-        int partitionSize = (int)Math.round(object.getLog().size() / 10.0);
+        //the folds are drawn from a shuffled copy, the same log always gives the same folds
+        List<XTrace> traces = new ArrayList<>(object.getLog());
+        Collections.shuffle(traces, new Random(CROSS_VALIDATION_SEED));
+        int partitionSize = (int)Math.round(traces.size() / (double) CROSS_VALIDATION_FOLDS);
         if (partitionSize == 0){
             partitionSize = 1;
         }
 
-        List<CrossValidationPartition> partitions = Lists.partition(object.getLog(), partitionSize)
+        List<CrossValidationPartition> partitions = Lists.partition(traces, partitionSize)
                 .stream().map(x -> new CrossValidationPartition(x, object.getLog().getAttributes())).collect(Collectors.toList());
 
-        List<ConformanceInfo> values = new ArrayList<ConformanceInfo>();
-
-        for(CrossValidationPartition testTraces: partitions){
+        //the folds are independent, they run on the shared pool
+        List<ConformanceInfo> values = MiningPool.map(partitions, testTraces -> {
             List<XTrace> trainTraces = partitions.stream()
                     .filter(x -> x != testTraces)
                     .flatMap(x -> x.getLog().stream()).collect(Collectors.toList());
@@ -92,24 +170,8 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
 
             XLog testLog = new XLogImpl(object.getLog().getAttributes());
             testLog.addAll(testTraces.getLog());
-
-            MiningResult result = object.getMiner().mineProcessTree(trainLog);
-            ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinet(result.getProcessTree());
-
-            ConformanceInfo candidate = getNewConformanceInfo();
-
-            PNRepResult alignment = petrinetHelper.getAlignment(trainLog, res.petrinet, res.initialMarking, res.finalMarking);
-            double fitness = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
-            candidate.setFitness(fitness);
-
-            double precision = petrinetHelper.getPrecision(trainLog, res.petrinet, alignment, res.initialMarking, res.finalMarking);
-            candidate.setPrecision(precision);
-
-            PNRepResult testAlignment = petrinetHelper.getAlignment(testLog, res.petrinet, res.initialMarking, res.finalMarking);
-            double generalization = Double.parseDouble(testAlignment.getInfo().get(FITNESS_KEY).toString());
-            candidate.setGeneralization(generalization);
-            values.add(candidate);
-        }
+            return computeFold(object.getMiner(), trainLog, testLog);
+        });
 
         ConformanceInfo conformanceInfo = getNewConformanceInfo();
         conformanceInfo.setFitness(values.stream().mapToDouble(x->x.getFitness()).sum() / values.size());
@@ -141,6 +203,7 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
         }
         return partitionings;
     }
+
     //splitLog(pratitioning.getPartitions().get(UUID.fromString("1d78cd13-f981-48c3-8a56-7b492f689b4f")).getLog(), false, 0.1f).getPartitions()
     private Partitioning splitLog(XLog trainLog, boolean computeConformance, float noiseFiltering) throws MiningException {
         ILogSplitter logSplitter = null; //new InductiveCutSplitting(this, noiseFiltering);
@@ -168,6 +231,31 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
         return pratitioning;
     }
 
+    private Partitioning getPartitioning(XLog trainLog) throws MiningException {
+        float noiseThreshold = configuration.getPartitionNoiseFilter();
+        Partitioning partitioning = checkpoint != null ? checkpoint.getPartitioning(noiseThreshold, this) : null;
+        if (partitioning != null){
+            logger.info("restored the partitioning from the checkpoint");
+            return partitioning;
+        }
+
+        partitioning = splitLog(trainLog, false, noiseThreshold);
+        if (checkpoint != null){
+            checkpoint.putPartitioning(noiseThreshold, partitioning);
+        }
+        return partitioning;
+    }
+
+    /**
+     * @return identifies the logs and the configuration a checkpoint was written for
+     */
+    private String getCheckpointFingerprint(){
+        return String.format("%s:%s:%s:%s:%s:%s",
+                logHelper.hash(this.log), this.validationLog != null ? logHelper.hash(this.validationLog) : "",
+                Arrays.toString(configuration.getNoiseThresholds()), configuration.getPartitionNoiseFilter(),
+                configuration.getLogSplitter().getName(), configuration.isPreExecuteFilter());
+    }
+
     private TreeChanges apply(TreeChanges baselineChange, Set<Change> changes) throws MiningException {
         TreeChanges newSln = baselineChange.ToTreeChanges();
         boolean success = true;
@@ -185,232 +273,623 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
         }
     }
 
-    private Map<String, TreeChanges> generatePossibleTreeChanges(Partitioning pratitioning, Set<Change> changeOptions) throws MiningException {
-        int maxSize = 5;
-        Set<Set<Change>> changesSet = Sets.newConcurrentHashSet(changeOptions.stream()
-                .map(x -> {
-                    HashSet<Change> s = new HashSet<>();
-                    s.add(x);
-                    return s;
-                }).collect(Collectors.toList()));
-
-        for(Change change1 : changeOptions) {
-            for (Change change2 : changeOptions) {
-                if (!change1.getPartitionInfo().isRalated(change2.getPartitionInfo())){
-                    changesSet.stream().filter(x->x.contains(change1))
-                            .forEach(x->
-                            {
-                                if (x.stream().allMatch(y -> !y.getPartitionInfo().isRalated(change2.getPartitionInfo()))){
-                                    Set<Change> newSln = x.stream().collect(Collectors.toSet());
-                                    newSln.add(change2);
-                                    if (newSln.size() <= maxSize){
-                                        changesSet.add(newSln);
-                                    }
-                                }
-                            });
-
-                    changesSet.stream().filter(x->x.contains(change2))
-                            .forEach(x->
-                            {
-                                if (x.stream().allMatch(y -> !y.getPartitionInfo().isRalated(change1.getPartitionInfo()))){
-                                    Set<Change> newSln = x.stream().collect(Collectors.toSet());
-                                    newSln.add(change1);
-                                    if (newSln.size() <= maxSize){
-                                        changesSet.add(newSln);
-                                    }
-                                }
-                            });
-                }
+    private Partitioning.PartitionInfo getRootPartition(Partitioning pratitioning){
+        return pratitioning.getPartitions().values().stream()
+                .filter(Partitioning.PartitionInfo::isRoot).findAny().get();
+    }
+
+    private Map<Change, Double> estimateGains(Partitioning pratitioning, Set<Change> changeOptions){
+        Map<Change, Double> gains = new ConcurrentHashMap<>();
+        Partitioning.PartitionInfo root = getRootPartition(pratitioning);
+        changeOptions.parallelStream().forEach(change -> {
+            try {
+                gains.put(change, partitionConformanceCache.estimateGain(change, root));
+            } catch (MiningCancelledException e) {
+                //a missing gain is neutral
+            } catch (MiningException e) {
+                throw new RuntimeException(e);
             }
-        }
+        });
+        return gains;
+    }
 
-        Set<Set<Change>> possibleChanges = new HashSet<>();
-        for (Set<Change> changes: changesSet){
-            possibleChanges.addAll(Sets.powerSet(changes));
-        }
+    private Map<ProcessTreeKey, TreeChanges> generatePossibleTreeChanges(Partitioning pratitioning, Set<Change> changeOptions) throws MiningException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        //without a budget every candidate is enumerated and the order does not matter
+        boolean budgeted = configuration.getCandidateBudget() > 0 || configuration.getEnumerationTimeBudget() > 0;
+        Map<Change, Double> gains = budgeted ? estimateGains(pratitioning, changeOptions) : new HashMap<>();
+        ChangeSetEnumerator enumerator = new ChangeSetEnumerator(changeOptions, gains,
+                configuration.getMaxChanges(), configuration.getCandidateBudget(), configuration.getEnumerationTimeBudget());
 
-        Map<TreeChangesSet, TreeChanges> allChanges = new ConcurrentHashMap<>();
         TreeChanges baselineChange = new TreeChanges(pratitioning, getNewConformanceInfo());
-        allChanges.put(baselineChange.getChanges(), baselineChange);
-
-        possibleChanges.parallelStream()
-                .map(x -> {
-                    try {
-                        return apply(baselineChange, x);
-                    } catch (MiningException e) {
-                        throw new RuntimeException(e);
-                    }
-                }).filter(Objects::nonNull)
-                .forEach(x -> allChanges.put(x.getChanges(), x));
-
-        /*
-        for (Set<Change> changes: possibleChanges){
-            TreeChanges newSln = baselineChange.ToTreeChanges();
-            boolean success = true;
-            for(Change change : changes) {
-                if (!newSln.Add(change)){
-                    success = false;
-                    break;
-                }
+        Map<ProcessTreeKey, TreeChanges> treeChangesMap = new HashMap<>();
+        //the first set is the baseline, it is enumerated even past the deadline so there is always a candidate
+        while (enumerator.hasNext()){
+            if (!treeChangesMap.isEmpty() && deadline.isCancelled()){
+                searchCutShort = true;
+                break;
             }
-            if (success){
-                allChanges.put(newSln.getChanges(), newSln);
+            List<Change> changeSet = enumerator.next();
+            TreeChanges treeChanges = changeSet.isEmpty() ? baselineChange : apply(baselineChange, new HashSet<>(changeSet));
+            if (treeChanges != null){
+                treeChangesMap.putIfAbsent(treeChanges.getKey(), treeChanges);
             }
-        }*/
-        Map<String, TreeChanges> treeChangesMap = new HashMap<>();
-        allChanges.values().forEach(x-> treeChangesMap.putIfAbsent(x.getModifiedProcessTree().toString(), x));
+        }
+        stopwatch.stop();
+
+        logger.info(String.format("enumerated %d change sets (%d distinct trees) in %d ms%s",
+                enumerator.getEmitted(), treeChangesMap.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS),
+                enumerator.isTruncated() ? ", stopped on budget" : ""));
         return treeChangesMap;
     }
 
     private Set<Change> getOptions(Partitioning pratitioning, List<NoiseInductiveMiner> miners, boolean computeConformance) throws MiningException {
-        Set<Change> changes = pratitioning.getPartitions().entrySet().stream()
-                .filter(x -> !x.getValue().getNode().isLeaf())
-                //.filter(x -> x.getValue().getConformanceInfo().getPsi() < 1.0)
+        //canonical order, so the change kept for a duplicate tree does not depend on scheduling
+        List<Change> changes = pratitioning.getPartitions().values().stream()
+                .filter(x -> !x.getNode().isLeaf())
+                //.filter(x -> x.getConformanceInfo().getPsi() < 1.0)
+                .sorted(Comparator.comparing(Partitioning.PartitionInfo::getSequentialId))
                 .flatMap(x-> miners.stream()
-                        .map(miner -> new Change(x.getValue(), x.getValue().getLog(), miner, this)))
-                .collect(Collectors.toSet());
-        Map<String, Change> treeToChangeMapping = new HashMap<>();
-        for(Change change : changes){
+                        .map(miner -> new Change(x, x.getLog(), miner, this)))
+                .collect(Collectors.toList());
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Map<ProcessTreeKey, Integer> treeToChangeMapping = new ConcurrentHashMap<>();
+        List<Integer> indices = IntStream.range(0, changes.size()).boxed().collect(Collectors.toList());
+        MiningPool.map(indices, index -> {
+            Change change = changes.get(index);
+            if (deadline.isCancelled()){
+                searchCutShort = true;
+                return null;
+            }
+
             //save the resulting subtree
-            MiningResult result = change.getMiner().mineProcessTree(change.getLog());
+            MiningResult result = checkpoint != null ? checkpoint.getOption(change) : null;
+            if (result == null){
+                try {
+                    result = change.getMiner().mineProcessTree(change.getLog());
+                } catch (MiningCancelledException e) {
+                    searchCutShort = true;
+                    return null;
+                }
+                if (checkpoint != null){
+                    checkpoint.putOption(change, result);
+                }
+            }
             change.setMiningResult(result);
 
-            String resultingTree = change.getMiningResult().getProcessTree().toString();
+            ProcessTreeKey resultingTree = change.getMiningResult().getKey();
             //logger.log(Level.INFO, String.format("Partition: %d, Tree: %s", change.getPartitionInfo().getSequentialId() ,resultingTree));
-            treeToChangeMapping.putIfAbsent(resultingTree, change);
+            treeToChangeMapping.merge(resultingTree, index, Math::min);
 
             if (computeConformance){
                 modifyPsiCrossValidation(change);
             }
-        }
+            return null;
+        });
+        stopwatch.stop();
+        logger.info(String.format("mined %d change options in %d ms", changes.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
 
-        return treeToChangeMapping.values().stream().collect(Collectors.toSet());
+        return treeToChangeMapping.values().stream().sorted().map(changes::get)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     private double getPruneThreshold(){
-        if (bestModel == null){
+        TreeChanges best = bestModel.get();
+        if (best == null){
             return 0;
         }
-        return bestModel.getConformanceInfo().getPsi();
+        return best.getConformanceInfo().getPsi();
     }
 
-    public synchronized void checkBestPsi(TreeChanges change){
-        if (bestModel == null || change.getConformanceInfo().getPsi() > bestModel.getConformanceInfo().getPsi()) {
-            bestModel = change;
+    /**
+     * Ties on psi go to the candidate with fewer changes and then to the lower key, so the outcome does not
+     * depend on the order in which workers complete.
+     */
+    private static boolean isBetter(TreeChanges change, TreeChanges best){
+        if (best == null){
+            return true;
         }
+
+        int psi = Double.compare(change.getConformanceInfo().getPsi(), best.getConformanceInfo().getPsi());
+        if (psi != 0){
+            return psi > 0;
+        }
+        if (change.getNumberOfChanges() != best.getNumberOfChanges()){
+            return change.getNumberOfChanges() < best.getNumberOfChanges();
+        }
+        return change.getKey().toString().compareTo(best.getKey().toString()) < 0;
     }
-    private void calcPsi(Collection<TreeChanges> treeChanges, XLog trainLog, XLog testLog) throws MiningException {
-        AtomicInteger progress = new AtomicInteger();
+
+    /**
+     * Feeds the partial psi of a pruned candidate to the surrogate, see {@link PsiSurrogate#observeBound}.
+     */
+    private void observePruned(TreeChanges change, double bound){
+        PsiSurrogate current = surrogate;
+        if (current != null){
+            current.observeBound(change, bound);
+        }
+    }
+
+    public void checkBestPsi(TreeChanges change){
+        //every candidate whose psi is exact passes here
+        PsiSurrogate current = surrogate;
+        if (current != null){
+            current.observe(change, change.getConformanceInfo().getPsi());
+        }
+
+        TreeChanges best;
+        do {
+            best = bestModel.get();
+            if (!isBetter(change, best)){
+                return;
+            }
+        } while (!bestModel.compareAndSet(best, change));
+
+        if (checkpoint != null && !change.getKey().toString().equals(checkpoint.getIncumbent())){
+            checkpoint.putIncumbent(change.getKey());
+        }
+    }
+
+    /**
+     * Restores the conformance of a candidate evaluated by a previous run from the checkpoint.
+     *
+     * @return true if the candidate was restored
+     */
+    private boolean restoreConformance(TreeChanges change){
+        if (checkpoint == null){
+            return false;
+        }
+
+        ConformanceInfo saved = checkpoint.getConformance(change.getKey(), configuration.getWeights());
+        if (saved == null){
+            return false;
+        }
+
+        ConformanceInfo info = change.getConformanceInfo();
+        info.setFitness(saved.getFitness());
+        info.setPrecision(saved.getPrecision());
+        info.setGeneralization(saved.getGeneralization());
+        checkBestPsi(change);
+        return true;
+    }
+
+    /**
+     * Seeds the best model with the incumbent of the checkpoint, so pruning is effective from the start.
+     */
+    private void restoreIncumbent(Collection<TreeChanges> treeChanges){
+        if (checkpoint == null || checkpoint.getIncumbent() == null){
+            return;
+        }
+
+        treeChanges.stream().filter(x -> x.getKey().toString().equals(checkpoint.getIncumbent()))
+                .findAny().ifPresent(this::restoreConformance);
+    }
+    /**
+     * Orders the candidates by estimated psi, baseline first, and keeps the given number of them besides the
+     * baseline (all for 0). Candidates whose estimation was cut by the deadline come last.
+     */
+    private List<TreeChanges> rank(Collection<TreeChanges> treeChanges, int limit) throws MiningException {
+        Map<TreeChanges, Double> estimations = new ConcurrentHashMap<>();
         treeChanges.parallelStream().forEach(change -> {
             try {
-                Stopwatch stopwatch = Stopwatch.createStarted();
-                ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinet(change.getModifiedProcessTree());
-                change.setPetrinetWithMarkings(res);
-                PNRepResult alignment = petrinetHelper.getAlignment(trainLog, res.petrinet, res.initialMarking, res.finalMarking);
-                change.setAlignment(alignment);
-                stopwatch.stop();
+                Partitioning.PartitionInfo root = getRootPartition(change.getPratitioning());
+                estimations.put(change, partitionConformanceCache.estimatePsi(change, root));
+            } catch (MiningCancelledException e) {
+                //ranked last
+            } catch (MiningException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        List<TreeChanges> ranked = treeChanges.stream().filter(x -> x.getNumberOfChanges() == 0).collect(Collectors.toList());
+        treeChanges.stream()
+                .sorted(Comparator.comparing((TreeChanges x) -> estimations.getOrDefault(x, Double.NEGATIVE_INFINITY), reverseOrder()))
+                .limit(limit > 0 ? limit : Long.MAX_VALUE)
+                .filter(x -> !ranked.contains(x))
+                .forEach(ranked::add);
+        return ranked;
+    }
+
+    private Collection<TreeChanges> shortList(Collection<TreeChanges> treeChanges) throws MiningException {
+        int shortListSize = configuration.getShortListSize();
+        boolean anytime = configuration.getTimeBudget() > 0 || configuration.getMemoryBudget() > 0;
+        if (shortListSize <= 0 || treeChanges.size() <= shortListSize){
+            //under a budget the most promising candidates go first, otherwise the order does not matter
+            return anytime ? rank(treeChanges, 0) : treeChanges;
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        List<TreeChanges> shortList = rank(treeChanges, shortListSize);
+        stopwatch.stop();
 
+        logger.info(String.format("short-listed %d of %d trees by estimated psi in %d ms (partition cache: %d entries, %d hits, %d misses)",
+                shortList.size(), treeChanges.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS),
+                partitionConformanceCache.size(), partitionConformanceCache.getHits(), partitionConformanceCache.getMisses()));
+        return shortList;
+    }
+
+    /**
+     * Computes the first candidates exactly to train the psi surrogate, which then orders the other candidates
+     * by predicted psi and, depending on the policy, skips those that are not predicted to beat the best model.
+     *
+     * @return the candidates left for the exact computation
+     */
+    private Collection<TreeChanges> applySurrogate(Collection<TreeChanges> treeChanges, XLog trainLog, XLog testLog) throws MiningException {
+        SurrogatePolicy policy = configuration.getSurrogatePolicy();
+        int warmUpSize = configuration.getSurrogateWarmUp();
+        if (policy == SurrogatePolicy.EXACT || treeChanges.size() <= warmUpSize){
+            return treeChanges;
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Set<Change> changeOptions = treeChanges.stream().flatMap(x -> x.getChanges().getChanges().stream())
+                .collect(Collectors.toSet());
+        surrogate = new PsiSurrogate(estimateGains(treeChanges.iterator().next().getPratitioning(), changeOptions));
+
+        //the head of the short list (baseline first) trains the surrogate
+        List<TreeChanges> ordered = new ArrayList<>(treeChanges);
+        MiningPool.map(ordered.subList(0, warmUpSize), change -> {
+            try {
+                evaluate(change, trainLog, testLog);
+            } catch (MiningCancelledException e) {
+                unevaluatedBound.accumulate(change.getConformanceInfo().maxValue());
+            }
+            return null;
+        });
+
+        Map<TreeChanges, Double> predictions = new HashMap<>();
+        for (TreeChanges change : ordered.subList(warmUpSize, ordered.size())){
+            predictions.put(change, surrogate.predict(change));
+        }
+
+        double threshold = getPruneThreshold() - configuration.getSurrogateMargin();
+        List<TreeChanges> remaining = predictions.keySet().stream()
+                //NaN (an untrained surrogate) keeps the candidate
+                .filter(x -> policy != SurrogatePolicy.PRUNE || !(predictions.get(x) < threshold))
+                .sorted(Comparator.comparing((TreeChanges x) -> predictions.get(x), reverseOrder()))
+                .collect(Collectors.toList());
+
+        logger.info(String.format("psi surrogate: trained on %d of %d warm up trees, skipped %d of %d trees in %d ms",
+                surrogate.getObservations(), warmUpSize, predictions.size() - remaining.size(), predictions.size(),
+                stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+        return remaining;
+    }
+
+    /**
+     * Computes generalization and precision of a candidate whose fitness is known, unless it cannot beat the
+     * current best model.
+     */
+    private void completePsi(TreeChanges change, XLog trainLog, XLog testLog, String storeKey, AtomicInteger pruned) throws MiningException {
+        ProcessTree2Petrinet.PetrinetWithMarkings res = change.getPetrinetWithMarkings();
+        PNRepResult alignment = change.getAlignment();
+        ConformanceInfo info = change.getConformanceInfo();
+
+        if (info.maxValue() >= getPruneThreshold()){
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            PNRepResult testAlignment = petrinetHelper.getCompleteAlignment(testLog, res.petrinet, res.initialMarking, res.finalMarking);
+            double generalization = Double.parseDouble(testAlignment.getInfo().get(FITNESS_KEY).toString());
+            info.setGeneralization(generalization);
+            stopwatch.stop();
+            info.setGeneralizationDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+        else {
+            observePruned(change, info.maxValue());
+            info.setGeneralization(0.0);
+            pruned.incrementAndGet();
+            return;
+        }
+
+        if (info.maxValue() >= getPruneThreshold()){
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            double precision = petrinetHelper.getPrecision(trainLog, res.petrinet, alignment, res.initialMarking, res.finalMarking);
+            info.setPrecision(precision);
+            stopwatch.stop();
+            info.setPrecisionDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        }
+        else{
+            observePruned(change, info.maxValue());
+            info.setPrecision(0.0);
+            pruned.incrementAndGet();
+            return;
+        }
+
+        checkBestPsi(change);
+        if (conformanceStore != null){
+            conformanceStore.put(storeKey, info);
+        }
+        if (checkpoint != null){
+            checkpoint.putConformance(change.getKey(), info);
+        }
+    }
+
+    /**
+     * Computes the fitness of a candidate, or restores its psi from the conformance store.
+     */
+    private void computeFitness(TreeChanges change, XLog trainLog, XLog testLog, Map<TreeChanges, String> storeKeys,
+                                Set<TreeChanges> stored) throws MiningException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinetCached(change.getModifiedProcessTree());
+        change.setPetrinetWithMarkings(res);
+
+        if (restoreConformance(change)){
+            stored.add(change);
+            return;
+        }
+
+        if (conformanceStore != null){
+            String key = conformanceStore.getKey(TRAIN_TEST_KIND, trainLog, testLog, change.getModifiedProcessTree());
+            storeKeys.put(change, key);
+            ConformanceInfo storedInfo = conformanceStore.get(key, configuration.getWeights());
+            if (storedInfo != null){
                 ConformanceInfo info = change.getConformanceInfo();
-                double fitness = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
-                info.setFitness(fitness);
-                info.setFitnessDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                info.setFitness(storedInfo.getFitness());
+                info.setPrecision(storedInfo.getPrecision());
+                info.setGeneralization(storedInfo.getGeneralization());
+                stored.add(change);
+                checkBestPsi(change);
+                return;
+            }
+        }
+
+        PNRepResult alignment = petrinetHelper.getCompleteAlignment(trainLog, res.petrinet, res.initialMarking, res.finalMarking);
+        change.setAlignment(alignment);
+        stopwatch.stop();
+
+        ConformanceInfo info = change.getConformanceInfo();
+        double fitness = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
+        info.setFitness(fitness);
+        info.setFitnessDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    private void calcPsi(Collection<TreeChanges> allTreeChanges, XLog trainLog, XLog testLog) throws MiningException {
+        restoreIncumbent(allTreeChanges);
+        surrogate = null;
+        Collection<TreeChanges> treeChanges = applySurrogate(shortList(allTreeChanges), trainLog, testLog);
+        AtomicInteger progress = new AtomicInteger();
+        Map<TreeChanges, String> storeKeys = new ConcurrentHashMap<>();
+        Set<TreeChanges> stored = Sets.newConcurrentHashSet();
+        int workers = Math.min(MiningPool.get().getParallelism(), Math.max(1, treeChanges.size()));
+        List<Integer> workerIds = IntStream.range(0, workers).boxed().collect(Collectors.toList());
+
+        //workers claim the candidates in the short list order, so the most promising are computed before the deadline
+        Queue<TreeChanges> pending = new ConcurrentLinkedQueue<>(treeChanges);
+        MiningPool.map(workerIds, worker -> {
+            TreeChanges change;
+            while (!deadline.isCancelled() && (change = pending.poll()) != null){
+                try {
+                    computeFitness(change, trainLog, testLog, storeKeys, stored);
+                } catch (MiningCancelledException e) {
+                    unevaluatedBound.accumulate(change.getConformanceInfo().maxValue());
+                    break;
+                }
 
                 int value = progress.incrementAndGet();
                 if (value % 100 == 0){
                     logger.info(String.format("calculated fitness for %d", value));
                 }
             }
-            catch (Exception ex){
-                throw new RuntimeException(ex);
-            }
+            return null;
         });
 
         AtomicInteger pruned = new AtomicInteger();
-        pruned.set(0);
         progress.set(0);
-        treeChanges.stream().sorted(Comparator.comparing(x -> x.getConformanceInfo().minValue(), reverseOrder()))
-                .forEachOrdered(change -> {
-            int value = progress.incrementAndGet();
-            try {
-                ProcessTree2Petrinet.PetrinetWithMarkings res = change.getPetrinetWithMarkings();
-                PNRepResult alignment = change.getAlignment();
-                ConformanceInfo info = change.getConformanceInfo();
-
-
-                if (info.maxValue() >=  getPruneThreshold()){
-                    Stopwatch stopwatch = Stopwatch.createStarted();
-                    PNRepResult testAlignment = petrinetHelper.getAlignment(testLog, res.petrinet, res.initialMarking, res.finalMarking);
-                    double generalization = Double.parseDouble(testAlignment.getInfo().get(FITNESS_KEY).toString());
-                    info.setGeneralization(generalization);
-                    stopwatch.stop();
-                    info.setGeneralizationDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
-                }
-                else {
-                    info.setGeneralization(0.0);
-                    pruned.incrementAndGet();
-                    //logger.log(Level.INFO,"pruned");
-                    return;
-                }
-
-                if (info.maxValue() >=  getPruneThreshold()){
-                    Stopwatch stopwatch = Stopwatch.createStarted();
-                    double precision = petrinetHelper.getPrecision(trainLog, res.petrinet, alignment, res.initialMarking, res.finalMarking);
-                    info.setPrecision(precision);
-                    stopwatch.stop();
-                    info.setPrecisionDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
-                }
-                else{
-                    info.setPrecision(0.0);
-                    pruned.incrementAndGet();
-                    //logger.log(Level.INFO,"pruned");
-                    return;
+        //workers claim the candidates with the highest lower bound first, so the incumbent rises early
+        //and pruning stays close to the sequential order
+        PriorityBlockingQueue<TreeChanges> queue = new PriorityBlockingQueue<>(Math.max(1, treeChanges.size()),
+                Comparator.comparing((TreeChanges x) -> x.getConformanceInfo().minValue(), reverseOrder()));
+        treeChanges.stream().filter(x -> x.getConformanceInfo().getFitness() != null && !stored.contains(x)).forEach(queue::add);
+        MiningPool.map(workerIds, worker -> {
+            TreeChanges change;
+            while (!deadline.isCancelled() && (change = queue.poll()) != null){
+                int value = progress.incrementAndGet();
+                try {
+                    completePsi(change, trainLog, testLog, storeKeys.get(change), pruned);
+                } catch (MiningCancelledException e) {
+                    unevaluatedBound.accumulate(change.getConformanceInfo().maxValue());
+                    break;
                 }
 
-                checkBestPsi(change);
-
-                //logger.log(Level.INFO, format("OPTIONAL MODEL: %s, tree: %s", change.toString(), change.getModifiedProcessTree().toString()));
-            }
-            catch (Exception ex){
-                throw new RuntimeException(ex);
-            }
-            finally {
                 if (value % 100 == 0){
                     logger.info(String.format("calculated psi for %d trees, pruned %d", value, pruned.intValue()));
                 }
             }
+            return null;
         });
-
+        pending.forEach(x -> unevaluatedBound.accumulate(x.getConformanceInfo().maxValue()));
+        queue.forEach(x -> unevaluatedBound.accumulate(x.getConformanceInfo().maxValue()));
 
         logger.info(String.format("calculation time: fitness %d, precision: %d, generalization %d",
                 treeChanges.stream().mapToLong(x->x.getConformanceInfo().getFitnessDuration()).sum(),
                 treeChanges.stream().mapToLong(x->x.getConformanceInfo().getPrecisionDuration()).sum(),
                 treeChanges.stream().mapToLong(x->x.getConformanceInfo().getGeneralizationDuration()).sum()));
 
-        logger.info(String.format("calculated psi for %d trees, pruned %d", treeChanges.size(), pruned.intValue()));
+        logger.info(String.format("calculated psi for %d trees, pruned %d, restored from store %d",
+                treeChanges.size(), pruned.intValue(), stored.size()));
+
+        if (surrogate != null){
+            logger.info(String.format("psi surrogate: %d observations, mean absolute error of the predictions %f",
+                    surrogate.getObservations(), surrogate.getMeanAbsoluteError()));
+        }
+
+        CacheStats conversions = PetrinetHelper.getConversionStats();
+        logger.info(String.format("net conversions: %d hits, %d misses", conversions.hitCount(), conversions.missCount()));
     }
 
-    //endregion
+    /**
+     * Computes the psi of a single candidate, the computation is cut short once it cannot beat the best model.
+     *
+     * @return the psi of the candidate, or an upper bound of it when the computation was cut short
+     */
+    private double evaluate(TreeChanges change, XLog trainLog, XLog testLog) throws MiningException {
+        ConformanceInfo info = change.getConformanceInfo();
+        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinetCached(change.getModifiedProcessTree());
+        change.setPetrinetWithMarkings(res);
+        if (restoreConformance(change)){
+            return info.getPsi();
+        }
 
-    //region constructors
+        String key = null;
+        if (conformanceStore != null){
+            key = conformanceStore.getKey(TRAIN_TEST_KIND, trainLog, testLog, change.getModifiedProcessTree());
+            ConformanceInfo storedInfo = conformanceStore.get(key, configuration.getWeights());
+            if (storedInfo != null){
+                info.setFitness(storedInfo.getFitness());
+                info.setPrecision(storedInfo.getPrecision());
+                info.setGeneralization(storedInfo.getGeneralization());
+                checkBestPsi(change);
+                return info.getPsi();
+            }
+        }
 
-    public AdaptiveNoiseMiner(String filename, AdaptiveNoiseConfiguration configuration) throws Exception {
-        super(filename);
-        this.configuration = configuration;
-        this.changes = new HashMap<>();
-        this.miners = NoiseInductiveMiner
-                .withNoiseThresholds(this.filename, configuration.isPreExecuteFilter(), configuration.getNoiseThresholds())
-                .stream().collect(Collectors.toList());
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        PNRepResult alignment = petrinetHelper.getCompleteAlignment(trainLog, res.petrinet, res.initialMarking, res.finalMarking);
+        change.setAlignment(alignment);
+        info.setFitness(Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString()));
+        info.setFitnessDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        if (info.maxValue() < getPruneThreshold()){
+            double upper = info.maxValue();
+            observePruned(change, upper);
+            info.setGeneralization(0.0);
+            info.setPrecision(0.0);
+            return upper;
+        }
+
+        stopwatch.reset().start();
+        PNRepResult testAlignment = petrinetHelper.getCompleteAlignment(testLog, res.petrinet, res.initialMarking, res.finalMarking);
+        info.setGeneralization(Double.parseDouble(testAlignment.getInfo().get(FITNESS_KEY).toString()));
+        info.setGeneralizationDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        if (info.maxValue() < getPruneThreshold()){
+            double upper = info.maxValue();
+            observePruned(change, upper);
+            info.setPrecision(0.0);
+            return upper;
+        }
+
+        stopwatch.reset().start();
+        info.setPrecision(petrinetHelper.getPrecision(trainLog, res.petrinet, alignment, res.initialMarking, res.finalMarking));
+        info.setPrecisionDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        checkBestPsi(change);
+        if (conformanceStore != null){
+            conformanceStore.put(key, info);
+        }
+        if (checkpoint != null){
+            checkpoint.putConformance(change.getKey(), info);
+        }
+        return info.getPsi();
     }
 
-    //endregion
+    /**
+     * @param evaluated memoizes the psi of every distinct tree, must be concurrent if the search evaluates in
+     *                  parallel
+     * @return an evaluator of the sets of changes of the given partitioning, stops on the deadline
+     */
+    private ICandidateEvaluator newEvaluator(Partitioning pratitioning, Map<ProcessTreeKey, Double> evaluated,
+                                             XLog trainLog, XLog testLog){
+        TreeChanges baselineChange = new TreeChanges(pratitioning, getNewConformanceInfo());
+        return new ICandidateEvaluator() {
+            @Override
+            public double evaluate(List<Change> changeSet) throws MiningException {
+                if (deadline.isCancelled()){
+                    throw new MiningCancelledException(deadline.getReason());
+                }
 
-    //region protected methods
-    @Override
-    protected ProcessTree2Petrinet.PetrinetWithMarkings minePetrinet() throws MiningException {
-        if (configuration.getUseCrossValidation()){
-            throw new MiningException("cross validation is not supported");
+                TreeChanges treeChanges = changeSet.isEmpty() ? baselineChange : apply(baselineChange, new HashSet<>(changeSet));
+                if (treeChanges == null){
+                    return Double.NEGATIVE_INFINITY;
+                }
+
+                ProcessTreeKey key = treeChanges.getKey();
+                Double psi = evaluated.get(key);
+                if (psi == null){
+                    changes.putIfAbsent(key, treeChanges);
+                    psi = AdaptiveNoiseMiner.this.evaluate(changes.get(key), trainLog, testLog);
+                    evaluated.put(key, psi);
+                }
+                return psi;
+            }
+
+            @Override
+            public double getIncumbent() {
+                return getPruneThreshold();
+            }
+        };
+    }
+
+    private void branchAndBound(Partitioning pratitioning, Set<Change> changeOptions, XLog trainLog, XLog testLog) throws MiningException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Map<ProcessTreeKey, Double> evaluated = new HashMap<>();
+        BranchAndBoundSearch search = new BranchAndBoundSearch(changeOptions, estimateGains(pratitioning, changeOptions),
+                configuration.getMaxChanges(), configuration.getBoundSlack(), newEvaluator(pratitioning, evaluated, trainLog, testLog));
+
+        try {
+            search.search();
+        } catch (MiningCancelledException e) {
+            searchCutShort = true;
+        }
+        stopwatch.stop();
+        logger.info(String.format("branch and bound: explored %d nodes, pruned %d branches, computed %d distinct trees in %d ms",
+                search.getExplored(), search.getPruned(), evaluated.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    }
+
+    private void localSearch(Partitioning pratitioning, Set<Change> changeOptions, XLog trainLog, XLog testLog) throws MiningException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        Map<ProcessTreeKey, Double> evaluated = new ConcurrentHashMap<>();
+        LocalSearch search = new LocalSearch(changeOptions, estimateGains(pratitioning, changeOptions),
+                configuration.getMaxChanges(), configuration.getLocalSearchBudget(), MiningPool.get().getParallelism(),
+                LOCAL_SEARCH_SEED, newEvaluator(pratitioning, evaluated, trainLog, testLog));
+
+        try {
+            search.search();
+        } catch (MiningCancelledException e) {
+            searchCutShort = true;
+        }
+        //sets that were never evaluated may still beat the incumbent
+        searchCutShort |= search.getEvaluated() >= configuration.getLocalSearchBudget();
+        stopwatch.stop();
+        logger.info(String.format("local search: evaluated %d change sets (%d distinct trees) with %d restarts in %d ms",
+                search.getEvaluated(), evaluated.size(), search.getRestarts(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    }
+
+    /**
+     * Bounds how much the psi of the best model may improve on the incumbent: candidates the deadline left
+     * unevaluated are bounded by their partial psi, and when candidates were never generated or searched the
+     * bound is the maximal psi. Candidates left out by the short list or the surrogate are dropped by design and
+     * do not count.
+     */
+    private double estimateQualityGap(TreeChanges incumbent){
+        if (!incumbent.getConformanceInfo().assigned()){
+            return Double.NaN;
+        }
+
+        double upper = searchCutShort ? getNewConformanceInfo().maxValue() : unevaluatedBound.get();
+        return Math.max(0, upper - incumbent.getConformanceInfo().getPsi());
+    }
+
+    /**
+     * Makes sure there is a model to return once the search is over, on a cut short search falls back to the
+     * unevaluated baseline when no candidate was completed, and logs the quality gap of the incumbent.
+     */
+    private void resolveIncumbent() throws MiningException {
+        if (bestModel.get() == null){
+            TreeChanges baseline = changes.values().stream().filter(x -> x.getNumberOfChanges() == 0).findAny()
+                    .orElseThrow(() -> new MiningException("no candidate was generated"));
+            logger.warning(String.format("no candidate was completed (%s), returning the baseline", deadline.getReason()));
+            baseline.setPetrinetWithMarkings(PetrinetHelper.ConvertToPetrinetCached(baseline.getModifiedProcessTree()));
+            bestModel.set(baseline);
         }
 
+        qualityGap = estimateQualityGap(bestModel.get());
+        if (deadline.getReason() != null){
+            logger.info(String.format("search stopped after %d ms (%s), the psi of the incumbent is at most %f below the optimum",
+                    deadline.getElapsed(), deadline.getReason(), qualityGap));
+        }
+    }
+
+    private ProcessTree2Petrinet.PetrinetWithMarkings mineAnytime() throws MiningException {
         List<TreeChanges> models = new ArrayList<>();
             XLog testLog = this.validationLog;
             XLog trainLog = this.log;
@@ -422,15 +901,25 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
                     configuration.getWeights().getFitnessWeight(), configuration.getWeights().getPrecisionWeight(), configuration.getWeights().getGeneralizationWeight()));
 
             //run algorithm
-            Partitioning partitioning = splitLog(trainLog, false, configuration.getPartitionNoiseFilter());
+            Partitioning partitioning = getPartitioning(trainLog);
             logger.info(partitioning.toString());
             Set<Change> changeOptions = getOptions(partitioning, miners, false);
             logger.info(format("found %d possible changes to initial partitioning (#miners x #sublogs)",
                     changeOptions.size()));
 
-            Map<String, TreeChanges> treeTochanges = generatePossibleTreeChanges(partitioning, changeOptions);
-            treeTochanges.entrySet().forEach(x -> this.changes.putIfAbsent(x.getKey(), x.getValue()));
+            if (configuration.getCandidateSearch() == CandidateSearch.BRANCH_AND_BOUND){
+                branchAndBound(partitioning, changeOptions, trainLog, testLog);
+            }
+            else if (configuration.getCandidateSearch() == CandidateSearch.LOCAL_SEARCH){
+                localSearch(partitioning, changeOptions, trainLog, testLog);
+            }
+            else {
+                Map<ProcessTreeKey, TreeChanges> treeTochanges = generatePossibleTreeChanges(partitioning, changeOptions);
+                treeTochanges.entrySet().forEach(x -> this.changes.putIfAbsent(x.getKey(), x.getValue()));
+                logger.info(format("found %d distinct trees", changes.size()));
 
+                calcPsi(this.changes.values(), trainLog, testLog);
+            }
 
             /*
             List<Partitioning> allPartitioning = splitLog(trainLog, false);
@@ -442,14 +931,11 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
                 logger.info(format("found %d possible changes to initial partitioning (#miners x #sublogs)",
                         changeOptions.size()));
 
-                Map<String, TreeChanges> treeTochanges = generatePossibleTreeChanges(partitioning, changeOptions);
+                Map<ProcessTreeKey, TreeChanges> treeTochanges = generatePossibleTreeChanges(partitioning, changeOptions);
                 treeTochanges.entrySet().forEach(x -> this.changes.putIfAbsent(x.getKey(), x.getValue()));
             }*/
 
 
-            logger.info(format("found %d distinct trees", changes.size()));
-
-            calcPsi(this.changes.values(), trainLog, testLog);
             /*
             for(TreeChanges c : treeTochanges.values()){
                 if (c.getConformanceInfo().assigned() && c.isBaseline()){
@@ -460,26 +946,89 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
                 }
             }*/
 
+            resolveIncumbent();
             logger.info("calculated psi for all trees");
-            logger.info("OPTIMAL MODEL: " + bestModel.toString());
+            logger.info("OPTIMAL MODEL: " + bestModel.get().toString());
 
             if (!configuration.getUseCrossValidation()){
-                return PetrinetHelper.ConvertToPetrinet(bestModel.getModifiedProcessTree());
+                return PetrinetHelper.ConvertToPetrinet(bestModel.get().getModifiedProcessTree());
             }
             else{
-                models.add(bestModel);
-                this.bestModel = null;
+                models.add(bestModel.get());
+                this.bestModel.set(null);
             }
             //return discoved process model
 
-        this.bestModel = models.stream().max(Comparator.comparing(x->x.getConformanceInfo().getPsi())).get();
-        return PetrinetHelper.ConvertToPetrinet(bestModel.getModifiedProcessTree());
+        this.bestModel.set(models.stream().max(Comparator.comparing(x->x.getConformanceInfo().getPsi())).get());
+        return PetrinetHelper.ConvertToPetrinet(bestModel.get().getModifiedProcessTree());
+    }
+
+    //endregion
+
+    //region constructors
+
+    public AdaptiveNoiseMiner(String filename, AdaptiveNoiseConfiguration configuration) throws Exception {
+        super(filename);
+        this.configuration = configuration;
+        this.changes = new ConcurrentHashMap<>();
+        this.partitionConformanceCache = new PartitionConformanceCache(this.petrinetHelper, configuration.getWeights());
+        this.conformanceStore = configuration.openConformanceStore();
+        this.miners = NoiseInductiveMiner
+                .withNoiseThresholds(configuration.isPreExecuteFilter(), configuration.getNoiseThresholds())
+                .stream().collect(Collectors.toList());
+    }
+
+    //endregion
+
+    //region protected methods
+    @Override
+    protected ProcessTree2Petrinet.PetrinetWithMarkings minePetrinet() throws MiningException {
+        if (configuration.getUseCrossValidation()){
+            throw new MiningException("cross validation is not supported");
+        }
+
+        deadline = configuration.startDeadline();
+        searchCutShort = false;
+        unevaluatedBound.reset();
+        petrinetHelper.setDeadline(deadline);
+        partitionMiner.setCanceller(deadline);
+        miners.forEach(miner -> miner.setCanceller(deadline));
+        checkpoint = configuration.openCheckpoint(getCheckpointFingerprint(), resume);
+        try {
+            return mineAnytime();
+        } finally {
+            deadline.close();
+            petrinetHelper.setDeadline(null);
+            if (checkpoint != null){
+                try {
+                    checkpoint.close();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "failed to close the checkpoint", e);
+                }
+                checkpoint = null;
+            }
+        }
     }
 
     //endregion
 
     //region public methods
 
+    /**
+     * Mines like {@link #mine()}, skipping the partitioning, the options and the candidates a previous run on the
+     * same logs recorded in the configured checkpoint.
+     *
+     * @throws MiningException if the run failed, unlike {@link #mine()} which only logs it
+     */
+    public void resume() throws MiningException {
+        this.resume = true;
+        try {
+            train();
+        } finally {
+            this.resume = false;
+        }
+    }
+
     @Override
     public NoiseInductiveMiner getPartitionMiner() {
         return this.partitionMiner;
@@ -492,7 +1041,7 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
 
     @Override
     public ProcessTree2Petrinet.PetrinetWithMarkings getModel() {
-        return bestModel.getPetrinetWithMarkings();
+        return bestModel.get().getPetrinetWithMarkings();
     }
 
     @Override
@@ -511,7 +1060,23 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
     }
 
     public TreeChanges getBestModel() {
-        return bestModel;
+        return bestModel.get();
+    }
+
+    /**
+     * @return the psi surrogate of the last search, null if it did not use one
+     */
+    public PsiSurrogate getSurrogate() {
+        return surrogate;
+    }
+
+    /**
+     * @return an upper bound of how much the psi of the optimal model exceeds the psi of the best model, 0 unless
+     * the search was cut short by the time or memory budget, NaN if the best model could not be evaluated. The
+     * candidates the short list or the surrogate leave out are not part of the bound.
+     */
+    public double getQualityGap() {
+        return qualityGap;
     }
 
     public Collection<TreeChanges> getChanges() {
@@ -528,7 +1093,11 @@ public class AdaptiveNoiseMiner extends AbstractPetrinetMiner implements IConfor
 
     @Override
     public ProcessTree getProcessTree() {
-        return this.bestModel.getModifiedProcessTree();
+        try {
+            return this.bestModel.get().getModifiedProcessTree();
+        } catch (MiningException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     //endregion
@@ -1,12 +1,14 @@
 package org.eduprom.miners.adaptiveNoise.IntermediateMiners;
 
 import org.eduprom.miners.adaptiveNoise.filters.FilterResult;
+import org.eduprom.utils.ProcessTreeKey;
 import org.processmining.processtree.ProcessTree;
 
 public class MiningResult {
 
     private ProcessTree processTree;
     private FilterResult filterResult;
+    private volatile ProcessTreeKey key;
 
     public MiningResult(ProcessTree processTree, FilterResult filterResult){
         this.processTree = processTree;
@@ -20,4 +22,11 @@ public class MiningResult {
     public FilterResult getFilterResult() {
         return filterResult;
     }
+
+    public ProcessTreeKey getKey() {
+        if (key == null){
+            key = ProcessTreeKey.of(processTree);
+        }
+        return key;
+    }
 }
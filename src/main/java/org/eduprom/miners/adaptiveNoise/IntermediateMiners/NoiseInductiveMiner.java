@@ -5,6 +5,7 @@ import org.eduprom.benchmarks.IBenchmarkableMiner;
 import org.eduprom.benchmarks.configuration.Weights;
 import org.eduprom.exceptions.ConformanceCheckException;
 import org.eduprom.exceptions.LogFileNotFoundException;
+import org.eduprom.exceptions.MiningCancelledException;
 import org.eduprom.exceptions.MiningException;
 import org.eduprom.miners.InductiveMiner;
 import org.eduprom.miners.adaptiveNoise.AdaMiner;
@@ -42,6 +43,7 @@ import org.processmining.processtree.ProcessTree;
 import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.eduprom.miners.adaptiveNoise.AdaptiveNoiseMiner.FITNESS_KEY;
 
@@ -99,9 +101,10 @@ public class NoiseInductiveMiner extends InductiveMiner implements IBenchmarkabl
 
 
 	//region private members
-	private HashMap<UUID, MiningResult> processTreeCache = new HashMap<>();
+	private final Map<UUID, MiningResult> processTreeCache = new ConcurrentHashMap<>();
 	private ConformanceInfo conformanceInfo;
-	private MiningResult result;
+	//the last mined result, the miner is shared by concurrent option mining jobs
+	private volatile MiningResult result;
 
 	private boolean filterPreExecution;
 	private static MiningParameters getMiningParameters(boolean filterPreExecution, float noiseThreshold){
@@ -121,24 +124,38 @@ public class NoiseInductiveMiner extends InductiveMiner implements IBenchmarkabl
 		super(filename, getMiningParameters(filterPreExecution, noiseThreshold));
 		this.filterPreExecution = filterPreExecution;
 	}
+
+	/**
+	 * In-memory miner for the intermediate mining of the adaptive miners: it mines the logs it is given,
+	 * does not access the file system and shares the ProM context, so it is cheap to create.
+	 */
+	public NoiseInductiveMiner(float noiseThreshold, boolean filterPreExecution) {
+		super(getMiningParameters(filterPreExecution, noiseThreshold));
+		this.filterPreExecution = filterPreExecution;
+	}
 	//endregion
 
 	//region mining for custom log
 	public MiningResult mineProcessTree(XLog rLog, UUID id) throws MiningException {
-		if (processTreeCache.containsKey(id)){
-			return processTreeCache.get(id);
+		MiningResult cached = processTreeCache.get(id);
+		if (cached != null){
+			return cached;
 		}
 
 		MiningResult res = mineProcessTree(rLog);
-		processTreeCache.put(id, res);
-		return res;
+		cached = processTreeCache.putIfAbsent(id, res);
+		return cached != null ? cached : res;
 	}
 
 	public MiningResult mineProcessTree(XLog rLog) throws MiningException {
 		FilterResult res = new FilterResult(rLog, 0, rLog.stream().mapToInt(x->x.size()).sum());
 		ProcessTree processTree = IMProcessTree.mineProcessTree(rLog, this.parameters, getCanceller());
-		this.result = new  MiningResult(processTree, res);
-		return this.result;
+		if (processTree == null && getCanceller().isCancelled()){
+			throw new MiningCancelledException(String.format("mining with noise threshold %f was cancelled", getNoiseThreshold()));
+		}
+		MiningResult miningResult = new MiningResult(processTree, res);
+		this.result = miningResult;
+		return miningResult;
 	}
 	//endregion
 
@@ -151,6 +168,17 @@ public class NoiseInductiveMiner extends InductiveMiner implements IBenchmarkabl
 		return miners;
 	}
 
+	/**
+	 * @return in-memory miners, one per threshold
+	 */
+	public static List<NoiseInductiveMiner> withNoiseThresholds(boolean filterPreExecution, float... noiseThreshold) {
+		ArrayList<NoiseInductiveMiner> miners = new ArrayList<>();
+		for (Float threshold: noiseThreshold){
+			miners.add(new NoiseInductiveMiner(threshold, filterPreExecution));
+		}
+		return miners;
+	}
+
 	@Override
 	public void evaluate() throws MiningException {
 		setConformanceInfo(AdaBenchmark.getPsi(petrinetHelper, this.result.getProcessTree(), this.log, Weights.getUniform()));
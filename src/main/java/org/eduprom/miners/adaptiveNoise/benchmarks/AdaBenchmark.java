@@ -3,6 +3,8 @@ package org.eduprom.miners.adaptiveNoise.benchmarks;
 
 import au.com.bytecode.opencsv.CSVReader;
 import au.com.bytecode.opencsv.CSVWriter;
+import com.google.common.base.Stopwatch;
+import org.deckfour.xes.info.XLogInfo;
 import org.deckfour.xes.model.XLog;
 import org.deckfour.xes.model.impl.XLogImpl;
 import org.eduprom.benchmarks.IBenchmark;
@@ -19,6 +21,8 @@ import org.eduprom.miners.adaptiveNoise.AdaMiner;
 import org.eduprom.miners.adaptiveNoise.AdaptiveNoiseMiner;
 import org.eduprom.miners.adaptiveNoise.IntermediateMiners.NoiseInductiveMiner;
 import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceStore;
+import org.eduprom.miners.adaptiveNoise.conformance.ThresholdMemo;
 import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
 import org.eduprom.utils.LogHelper;
 import org.eduprom.utils.PetrinetHelper;
@@ -36,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -52,6 +57,7 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
     final AdaptiveNoiseBenchmarkConfiguration adaptiveNoiseBenchmarkConfiguration;
     String path;
     int testSize;
+    private final ConformanceStore conformanceStore;
 
     /*
     private Set<String> getTraces(XLog log){
@@ -66,31 +72,83 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
 
     }
 
+    /**
+     * Measures the tree on the training log, its generalization is the fitness on the training log as well.
+     *
+     * @param validationLog not measured
+     */
     public static ConformanceInfo getPsi(PetrinetHelper petrinetHelper, ProcessTree processTree, XLog trainingLog, XLog validationLog, Weights weights) throws MiningException {
+        return getPsi(null, petrinetHelper, processTree, trainingLog, validationLog, weights);
+    }
+
+    /**
+     * Same as {@link #getPsi(PetrinetHelper, ProcessTree, XLog, XLog, Weights)}, reading through the given store.
+     *
+     * @param conformanceStore a store of previously computed results, may be null
+     */
+    public static ConformanceInfo getPsi(ConformanceStore conformanceStore, PetrinetHelper petrinetHelper, ProcessTree processTree, XLog trainingLog, XLog validationLog, Weights weights) throws MiningException {
+        return getPsi(conformanceStore, petrinetHelper, processTree, trainingLog, null, weights, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Same as {@link #getPsi(ConformanceStore, PetrinetHelper, ProcessTree, XLog, XLog, Weights)}, for callers
+     * that measure many trees on the same log.
+     *
+     * @param trainingLogInfo the info of the training log, see {@link PetrinetHelper#getLogInfo(XLog)}, null to
+     *                        compute it
+     * @param pruneBelow the precision is skipped if the tree cannot reach this psi even with a perfect precision,
+     *                   negative infinity never skips it
+     * @return the conformance of the tree, null if it was pruned
+     */
+    public static ConformanceInfo getPsi(ConformanceStore conformanceStore, PetrinetHelper petrinetHelper, ProcessTree processTree,
+                                         XLog trainingLog, XLogInfo trainingLogInfo, Weights weights,
+                                         double pruneBelow) throws MiningException {
+        String key = null;
+        if (conformanceStore != null){
+            key = conformanceStore.getKey(AdaptiveNoiseMiner.ADA_KIND, trainingLog, processTree);
+            ConformanceInfo stored = conformanceStore.get(key, weights);
+            if (stored != null){
+                return stored;
+            }
+        }
+
+        XLogInfo logInfo = trainingLogInfo != null ? trainingLogInfo : petrinetHelper.getLogInfo(trainingLog);
+        Stopwatch stopwatch = Stopwatch.createStarted();
         ConformanceInfo info = new ConformanceInfo(weights);
-        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinet(processTree);
-        PNRepResult alignment = petrinetHelper.getAlignment(trainingLog, res.petrinet, res.initialMarking, res.finalMarking);
+        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinetCached(processTree);
+        PNRepResult alignment = petrinetHelper.getCompleteAlignment(trainingLog, logInfo, res.petrinet, res.initialMarking, res.finalMarking);
         double fitness = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
         //this.petrinetHelper.printResults(alignment);
         info.setFitness(fitness);
+        //the generalization is the fitness on the training log as well
+        info.setGeneralization(fitness);
+        info.setFitnessDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+
+        if (info.maxValue() < pruneBelow){
+            logger.log(Level.FINE, String.format("pruned a tree after %d ms, psi at most %f: %s",
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS), info.maxValue(), processTree));
+            return null;
+        }
 
-        double precision = petrinetHelper.getPrecision(trainingLog, res.petrinet, alignment, res.initialMarking, res.finalMarking);
+        double precision = petrinetHelper.getPrecision(trainingLog, logInfo, res.petrinet, alignment, res.initialMarking, res.finalMarking);
         info.setPrecision(precision);
-
-        PNRepResult genAlignment = petrinetHelper.getAlignment(validationLog, res.petrinet, res.initialMarking, res.finalMarking);
-        double generalization = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
-        info.setGeneralization(generalization);
+        info.setPrecisionDuration(stopwatch.elapsed(TimeUnit.MILLISECONDS) - info.getFitnessDuration());
 
 
         //AlignmentPrecGenRes alignmentPrecGenRes = petrinetHelper.getConformance(trainingLog, res.petrinet, alignment, res.initialMarking, res.finalMarking);
         //info.setPrecision(alignmentPrecGenRes.getPrecision());
         //info.setGeneralization(alignmentPrecGenRes.getGeneralization());
+        if (conformanceStore != null){
+            conformanceStore.put(key, info);
+        }
+        logger.log(Level.FINE, String.format("measured a tree in %d ms, conformance %s: %s",
+                stopwatch.elapsed(TimeUnit.MILLISECONDS), info, processTree));
         return info;
     }
 
     public static ConformanceInfo getPsi(PetrinetHelper petrinetHelper, ProcessTree processTree, XLog trainingLog, Weights weights) throws MiningException {
         ConformanceInfo info = new ConformanceInfo(weights);
-        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinet(processTree);
+        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinetCached(processTree);
         PNRepResult alignment = petrinetHelper.getAlignment(trainingLog, res.petrinet, res.initialMarking, res.finalMarking);
         double fitness = Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString());
         //this.petrinetHelper.printResults(alignment);
@@ -109,6 +167,7 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
         //String format = "./Output/%s.csv";
         //this.path = String.format(format, this.getName());
         this.runId = UUID.randomUUID();
+        this.conformanceStore = adaptiveNoiseBenchmarkConfiguration.openConformanceStore();
         String format = "./Output/%s-%s.csv";
         this.path = String.format(format, this.getName(),
                 new SimpleDateFormat("yyyy-MM-dd HH-mm-ss").format(new Date()));
@@ -124,8 +183,8 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
     public List<NoiseInductiveMiner> getTargets(String filename) throws LogFileNotFoundException {
         List<NoiseInductiveMiner> benchmarkableMiners = new ArrayList<>();
         for(float noiseThreshold: this.adaptiveNoiseBenchmarkConfiguration.getNoiseThresholds()){
-            benchmarkableMiners.add(new NoiseInductiveMiner(filename, noiseThreshold, false));
-            benchmarkableMiners.add(new NoiseInductiveMiner(filename, noiseThreshold, true));
+            benchmarkableMiners.add(new NoiseInductiveMiner(noiseThreshold, false));
+            benchmarkableMiners.add(new NoiseInductiveMiner(noiseThreshold, true));
         }
 
         return benchmarkableMiners;
@@ -154,7 +213,7 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
     private void processAdaptiveNoise(AdaMiner adaMiner, BenchmarkLogs benchmarkLogs, Weights weights) throws MiningException {
         //mine the models
         adaMiner.mine();
-        adaMiner.setConformanceInfo(getPsi(adaMiner.getHelper(), adaMiner.getProcessTree(),
+        adaMiner.setConformanceInfo(getPsi(conformanceStore, adaMiner.getHelper(), adaMiner.getProcessTree(),
                 benchmarkLogs.getTrainLog(), benchmarkLogs.getValidationLog(), weights));
     }
 
@@ -176,11 +235,14 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
 
             BenchmarkLogs benchmarkLogs = getBenchmarkLogs(filename);
             logger.info(benchmarkLogs.toString());
+            //the runs of all weights on this log share their threshold evaluations
+            ThresholdMemo thresholdMemo = new ThresholdMemo();
 
             for (Weights weights: adaptiveNoiseBenchmarkConfiguration.getWeights()) {
 
                 AdaMiner adaMinerImi =
                         new AdaMiner(filename, this.adaptiveNoiseBenchmarkConfiguration.getAdaptiveNoiseConfiguration(weights, false));
+                adaMinerImi.setThresholdMemo(thresholdMemo);
                 processAdaptiveNoise(adaMinerImi, benchmarkLogs, weights);
 
                 List<NoiseInductiveMiner> targets = getTargets(filename);
@@ -191,19 +253,20 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
                 if (includePreFiter) {
                     adaMinerImiTag =
                             new AdaMiner(filename, this.adaptiveNoiseBenchmarkConfiguration.getAdaptiveNoiseConfiguration(weights, true));
+                    adaMinerImiTag.setThresholdMemo(thresholdMemo);
                     processAdaptiveNoise(adaMinerImiTag, benchmarkLogs, weights);
 
                     miners = targets.stream().filter(NoiseInductiveMiner::isFilterPreExecution).collect(Collectors.toList());
 
                     preBestBaseline = obtainBest(miners, benchmarkLogs.getTrainLog(), benchmarkLogs.getValidationLog(), weights);
-                    preBestBaseline.setConformanceInfo(getPsi(preBestBaseline.getHelper(),
+                    preBestBaseline.setConformanceInfo(getPsi(conformanceStore, preBestBaseline.getHelper(),
                             preBestBaseline.getProcessTree(), benchmarkLogs.getTrainLog(), benchmarkLogs.getValidationLog(), weights));
                 }
 
 
                 miners = targets.stream().filter(x-> !x.isFilterPreExecution()).collect(Collectors.toList());
                 NoiseInductiveMiner nonPreFilterBestBaseline = obtainBest(miners, benchmarkLogs.getTrainLog(), benchmarkLogs.getValidationLog(), weights);
-                nonPreFilterBestBaseline.setConformanceInfo(getPsi(nonPreFilterBestBaseline.getHelper(),
+                nonPreFilterBestBaseline.setConformanceInfo(getPsi(conformanceStore, nonPreFilterBestBaseline.getHelper(),
                         nonPreFilterBestBaseline.getProcessTree(), benchmarkLogs.getTrainLog(), benchmarkLogs.getValidationLog(), weights));
 
                 logger.log(Level.INFO, String.format("BEST AN MODEL (d=IMi) : %s, %s",
@@ -243,7 +306,7 @@ public class AdaBenchmark implements IBenchmark<AdaptiveNoiseMiner, NoiseInducti
         for(NoiseInductiveMiner miner: noiseInductiveMiners){
             miner.setLog(trainLog);
             miner.mine();
-            miner.setConformanceInfo(getPsi(miner.getHelper(), miner.getProcessTree(), trainLog, validationLog, weights));
+            miner.setConformanceInfo(getPsi(conformanceStore, miner.getHelper(), miner.getProcessTree(), trainLog, validationLog, weights));
 
             if (bestBaseline == null || bestBaseline.getConformanceInfo().getPsi() <= miner.getConformanceInfo().getPsi()){
                 bestBaseline = miner;
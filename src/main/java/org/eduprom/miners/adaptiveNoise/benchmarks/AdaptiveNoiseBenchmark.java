@@ -15,6 +15,7 @@ import org.eduprom.exceptions.ParsingException;
 import org.eduprom.miners.AbstractMiner;
 import org.eduprom.miners.adaptiveNoise.AdaptiveNoiseMiner;
 import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceStore;
 import org.eduprom.miners.adaptiveNoise.IntermediateMiners.NoiseInductiveMiner;
 import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
 import org.eduprom.utils.LogHelper;
@@ -42,6 +43,7 @@ public class AdaptiveNoiseBenchmark implements IBenchmark<AdaptiveNoiseMiner, No
     final AdaptiveNoiseBenchmarkConfiguration adaptiveNoiseBenchmarkConfiguration;
     String path;
     int testSize;
+    private final ConformanceStore conformanceStore;
 
     /*
     private Set<String> getTraces(XLog log){
@@ -96,6 +98,16 @@ public class AdaptiveNoiseBenchmark implements IBenchmark<AdaptiveNoiseMiner, No
     }
 
     private void evaluate(IBenchmarkableMiner miner, XLog trainingLog, XLog testLog, Weights weights) throws ConformanceCheckException {
+        String key = null;
+        if (conformanceStore != null){
+            key = conformanceStore.getKey(AdaptiveNoiseMiner.TRAIN_TEST_KIND, trainingLog, testLog, miner.getProcessTree());
+            ConformanceInfo stored = conformanceStore.get(key, weights);
+            if (stored != null){
+                miner.setConformanceInfo(stored);
+                return;
+            }
+        }
+
         ProcessTree2Petrinet.PetrinetWithMarkings model = miner.getModel();
         PNRepResult alignment =  miner.getHelper().getAlignment(trainingLog,
                 model.petrinet, model.initialMarking, model.finalMarking);
@@ -111,6 +123,9 @@ public class AdaptiveNoiseBenchmark implements IBenchmark<AdaptiveNoiseMiner, No
         double generalization = Double.parseDouble(testAlignment.getInfo().get(FITNESS_KEY).toString());
         info.setGeneralization(generalization);
         miner.setConformanceInfo(info);
+        if (conformanceStore != null){
+            conformanceStore.put(key, info);
+        }
         //logger.info(String.format("miner: %s, conformance: %s", miner.getName(), miner.getConformanceInfo()));
     }
 
@@ -121,6 +136,7 @@ public class AdaptiveNoiseBenchmark implements IBenchmark<AdaptiveNoiseMiner, No
         //String format = "./Output/%s.csv";
         //this.path = String.format(format, this.getName());
         this.runId = UUID.randomUUID();
+        this.conformanceStore = adaptiveNoiseBenchmarkConfiguration.openConformanceStore();
         String format = "./Output/%s-%s.csv";
         this.path = String.format(format, this.getName(),
                 new SimpleDateFormat("yyyy-MM-dd HH-mm-ss").format(new Date()));
@@ -136,8 +152,8 @@ public class AdaptiveNoiseBenchmark implements IBenchmark<AdaptiveNoiseMiner, No
     public List<NoiseInductiveMiner> getTargets(String filename) throws LogFileNotFoundException {
         List<NoiseInductiveMiner> benchmarkableMiners = new ArrayList<>();
         for(float noiseThreshold: this.adaptiveNoiseBenchmarkConfiguration.getNoiseThresholds()){
-            benchmarkableMiners.add(new NoiseInductiveMiner(filename, noiseThreshold, false));
-            benchmarkableMiners.add(new NoiseInductiveMiner(filename, noiseThreshold, true));
+            benchmarkableMiners.add(new NoiseInductiveMiner(noiseThreshold, false));
+            benchmarkableMiners.add(new NoiseInductiveMiner(noiseThreshold, true));
         }
 
         return benchmarkableMiners;
@@ -5,18 +5,24 @@ import org.eduprom.benchmarks.configuration.NoiseThreshold;
 import org.eduprom.benchmarks.configuration.Weights;
 import org.eduprom.exceptions.MiningException;
 import org.eduprom.miners.adaptiveNoise.configuration.AdaptiveNoiseConfiguration;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceStore;
 import org.eduprom.partitioning.ILogSplitter;
 import org.eduprom.partitioning.InductiveCutSplitting;
 import org.eduprom.partitioning.trunk.InductiveLogSplitting;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class AdaptiveNoiseBenchmarkConfiguration {
 
+    private static final Logger logger = Logger.getLogger(AdaptiveNoiseBenchmarkConfiguration.class.getName());
+
     //region private members
 
     private float[] noiseThresholds;
@@ -25,6 +31,7 @@ public class AdaptiveNoiseBenchmarkConfiguration {
     private boolean useCrossValidation;
     private Class<? extends ILogSplitter> logSplitter;
     private Set<String> filenames;
+    private String conformanceStorePath;
 
     //endregoin
 
@@ -42,6 +49,7 @@ public class AdaptiveNoiseBenchmarkConfiguration {
         private boolean useCrossValidation;
         private Class<? extends ILogSplitter> logSplitter;
         private Logs logs;
+        private String conformanceStorePath;
 
         public AdaptiveNoiseBenchmarkConfigurationBuilder() throws MiningException {
             this.weights = new ArrayList<>();
@@ -93,6 +101,11 @@ public class AdaptiveNoiseBenchmarkConfiguration {
             return this;
         }
 
+        public AdaptiveNoiseBenchmarkConfigurationBuilder setConformanceStorePath(String conformanceStorePath) {
+            this.conformanceStorePath = conformanceStorePath;
+            return this;
+        }
+
         public float[] getNoiseThresholds() {
             return noiseThresholds;
         }
@@ -130,6 +143,10 @@ public class AdaptiveNoiseBenchmarkConfiguration {
         public Logs getLogs(){
             return this.logs;
         }
+
+        public String getConformanceStorePath() {
+            return conformanceStorePath;
+        }
     }
     //endregion
 
@@ -141,6 +158,7 @@ public class AdaptiveNoiseBenchmarkConfiguration {
         this.partitionNoiseFilter = builder.getPartitionNoiseFilter();
         this.logSplitter = builder.getLogSplitter();
         this.filenames = builder.getLogs().getFiles();
+        this.conformanceStorePath = builder.getConformanceStorePath();
     }
 
     public float[] getNoiseThresholds() {
@@ -171,6 +189,26 @@ public class AdaptiveNoiseBenchmarkConfiguration {
         return filenames;
     }
 
+    public String getConformanceStorePath() {
+        return conformanceStorePath;
+    }
+
+    /**
+     * @return the configured conformance store, or null if none is configured or it cannot be opened
+     */
+    public ConformanceStore openConformanceStore() {
+        if (conformanceStorePath == null){
+            return null;
+        }
+
+        try {
+            return ConformanceStore.open(conformanceStorePath);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("conformance store %s is unavailable", conformanceStorePath), e);
+            return null;
+        }
+    }
+
     /*
     public AdaptiveNoiseMiner getMiner(String filename) throws Exception {
         return new AdaptiveNoiseMiner(filename, this);
@@ -184,6 +222,7 @@ public class AdaptiveNoiseBenchmarkConfiguration {
                 .setPreExecuteFilter(preExecuteFilter)
                 .setLogSplitter(this.logSplitter)
                 .setWeights(weights)
+                .setConformanceStorePath(this.conformanceStorePath)
                 .build();
     }
 }
@@ -2,10 +2,19 @@ package org.eduprom.miners.adaptiveNoise.configuration;
 
 import org.eduprom.benchmarks.configuration.Weights;
 import org.eduprom.miners.adaptiveNoise.AdaptiveNoiseMiner;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceStore;
+import org.eduprom.miners.adaptiveNoise.search.SearchCheckpoint;
 import org.eduprom.partitioning.ILogSplitter;
+import org.eduprom.utils.Deadline;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class AdaptiveNoiseConfiguration {
 
+    private static final Logger logger = Logger.getLogger(AdaptiveNoiseConfiguration.class.getName());
+
 
     //region private members
 
@@ -15,6 +24,25 @@ public class AdaptiveNoiseConfiguration {
     private boolean useCrossValidation;
     private boolean preExecuteFilter;
     private Class<? extends ILogSplitter> logSplitter;
+    private int shortListSize;
+    private String conformanceStorePath;
+    private int maxChanges;
+    private int candidateBudget;
+    private long enumerationTimeBudget;
+    private CandidateSearch candidateSearch;
+    private double boundSlack;
+    private long timeBudget;
+    private long memoryBudget;
+    private String checkpointPath;
+    private long checkpointInterval;
+    private SurrogatePolicy surrogatePolicy;
+    private int surrogateWarmUp;
+    private double surrogateMargin;
+    private int localSearchBudget;
+    private int forkMinTraces;
+    private ThresholdSelection thresholdSelection;
+    private int halvingSampleSize;
+    private double halvingConfidence;
 
     //endregoin
 
@@ -29,6 +57,25 @@ public class AdaptiveNoiseConfiguration {
         private boolean useCrossValidation;
         private boolean preExecuteFilter;
         private Class<? extends ILogSplitter> logSplitter;
+        private int shortListSize;
+        private String conformanceStorePath;
+        private int maxChanges = 5;
+        private int candidateBudget;
+        private long enumerationTimeBudget;
+        private CandidateSearch candidateSearch = CandidateSearch.EXHAUSTIVE;
+        private double boundSlack = Double.POSITIVE_INFINITY;
+        private long timeBudget;
+        private long memoryBudget;
+        private String checkpointPath;
+        private long checkpointInterval = 5000;
+        private SurrogatePolicy surrogatePolicy = SurrogatePolicy.EXACT;
+        private int surrogateWarmUp = 20;
+        private double surrogateMargin = 0.02;
+        private int localSearchBudget = 1000;
+        private int forkMinTraces = 50;
+        private ThresholdSelection thresholdSelection = ThresholdSelection.EXHAUSTIVE;
+        private int halvingSampleSize = 100;
+        private double halvingConfidence = 0.5;
 
         public AdaptiveNoiseConfigurationBuilder setNoiseThresholds(float... noiseThresholds){
             this.noiseThresholds = noiseThresholds;
@@ -71,6 +118,163 @@ public class AdaptiveNoiseConfiguration {
             return this;
         }
 
+        /**
+         * @param shortListSize number of candidates (ranked by their estimated psi) that get an exact
+         *                      conformance computation, 0 computes all candidates exactly
+         */
+        public AdaptiveNoiseConfigurationBuilder setShortListSize(int shortListSize) {
+            this.shortListSize = shortListSize;
+            return this;
+        }
+
+        /**
+         * @param conformanceStorePath path of a local conformance store shared across runs, null disables it
+         */
+        public AdaptiveNoiseConfigurationBuilder setConformanceStorePath(String conformanceStorePath) {
+            this.conformanceStorePath = conformanceStorePath;
+            return this;
+        }
+
+        /**
+         * @param maxChanges maximal number of partitions replaced in a single candidate
+         */
+        public AdaptiveNoiseConfigurationBuilder setMaxChanges(int maxChanges) {
+            this.maxChanges = maxChanges;
+            return this;
+        }
+
+        /**
+         * @param candidateBudget maximal number of candidates enumerated (best estimated psi first), 0 for no limit
+         */
+        public AdaptiveNoiseConfigurationBuilder setCandidateBudget(int candidateBudget) {
+            this.candidateBudget = candidateBudget;
+            return this;
+        }
+
+        /**
+         * @param enumerationTimeBudget maximal time in milliseconds spent enumerating candidates, 0 for no limit
+         */
+        public AdaptiveNoiseConfigurationBuilder setEnumerationTimeBudget(long enumerationTimeBudget) {
+            this.enumerationTimeBudget = enumerationTimeBudget;
+            return this;
+        }
+
+        public AdaptiveNoiseConfigurationBuilder setCandidateSearch(CandidateSearch candidateSearch) {
+            this.candidateSearch = candidateSearch;
+            return this;
+        }
+
+        /**
+         * @param boundSlack added to the optimistic bounds of the branch and bound search. The bounds are estimates,
+         *                   so only the default {@link Double#POSITIVE_INFINITY} is guaranteed to find the
+         *                   exhaustive optimum; a finite slack cuts branches the estimates deem hopeless and may
+         *                   miss it
+         */
+        public AdaptiveNoiseConfigurationBuilder setBoundSlack(double boundSlack) {
+            this.boundSlack = boundSlack;
+            return this;
+        }
+
+        /**
+         * @param timeBudget wall-clock budget of a mining run in milliseconds, once it is exhausted the best
+         *                   model found so far is returned, 0 for no limit
+         */
+        public AdaptiveNoiseConfigurationBuilder setTimeBudget(long timeBudget) {
+            this.timeBudget = timeBudget;
+            return this;
+        }
+
+        /**
+         * @param memoryBudget used heap in megabytes above which a mining run stops and returns the best model
+         *                     found so far, 0 for no limit
+         */
+        public AdaptiveNoiseConfigurationBuilder setMemoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * @param checkpointPath path of a checkpoint file a search can be resumed from, null disables checkpoints
+         */
+        public AdaptiveNoiseConfigurationBuilder setCheckpointPath(String checkpointPath) {
+            this.checkpointPath = checkpointPath;
+            return this;
+        }
+
+        /**
+         * @param checkpointInterval minimal time in milliseconds between two writes of the checkpoint to disk
+         */
+        public AdaptiveNoiseConfigurationBuilder setCheckpointInterval(long checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        public AdaptiveNoiseConfigurationBuilder setSurrogatePolicy(SurrogatePolicy surrogatePolicy) {
+            this.surrogatePolicy = surrogatePolicy;
+            return this;
+        }
+
+        /**
+         * @param surrogateWarmUp number of candidates computed exactly, in short list order, before the psi
+         *                        surrogate decides on the others
+         */
+        public AdaptiveNoiseConfigurationBuilder setSurrogateWarmUp(int surrogateWarmUp) {
+            this.surrogateWarmUp = surrogateWarmUp;
+            return this;
+        }
+
+        /**
+         * @param surrogateMargin added to the predicted psi of a candidate before it is compared to the best
+         *                        model, larger margins skip fewer candidates. The surrogate learns the exact psi
+         *                        of the warm up candidates and only the partial psi, an upper bound, of the
+         *                        ones that are pruned, so its predictions lean high and the margin covers the
+         *                        error of the regression, not a bias towards skipping
+         */
+        public AdaptiveNoiseConfigurationBuilder setSurrogateMargin(double surrogateMargin) {
+            this.surrogateMargin = surrogateMargin;
+            return this;
+        }
+
+        /**
+         * @param localSearchBudget maximal number of distinct sets of changes the local search evaluates
+         */
+        public AdaptiveNoiseConfigurationBuilder setLocalSearchBudget(int localSearchBudget) {
+            this.localSearchBudget = localSearchBudget;
+            return this;
+        }
+
+        /**
+         * @param forkMinTraces minimal number of traces of a sublog for it to be mined as a separate task,
+         *                      smaller sublogs are mined by the thread of their parent
+         */
+        public AdaptiveNoiseConfigurationBuilder setForkMinTraces(int forkMinTraces) {
+            this.forkMinTraces = forkMinTraces;
+            return this;
+        }
+
+        public AdaptiveNoiseConfigurationBuilder setThresholdSelection(ThresholdSelection thresholdSelection) {
+            this.thresholdSelection = thresholdSelection;
+            return this;
+        }
+
+        /**
+         * @param halvingSampleSize number of training traces the thresholds are first scored on by the successive
+         *                          halving, doubled after every round
+         */
+        public AdaptiveNoiseConfigurationBuilder setHalvingSampleSize(int halvingSampleSize) {
+            this.halvingSampleSize = halvingSampleSize;
+            return this;
+        }
+
+        /**
+         * @param halvingConfidence confidence in [0, 1) required to drop a threshold on a sample, 0 always drops
+         *                          the worse half
+         */
+        public AdaptiveNoiseConfigurationBuilder setHalvingConfidence(double halvingConfidence) {
+            this.halvingConfidence = halvingConfidence;
+            return this;
+        }
+
         public float[] getNoiseThresholds() {
             return noiseThresholds;
         }
@@ -98,6 +302,82 @@ public class AdaptiveNoiseConfiguration {
         public Class<? extends ILogSplitter> getLogSplitter() {
             return logSplitter;
         }
+
+        public int getShortListSize() {
+            return shortListSize;
+        }
+
+        public String getConformanceStorePath() {
+            return conformanceStorePath;
+        }
+
+        public int getMaxChanges() {
+            return maxChanges;
+        }
+
+        public int getCandidateBudget() {
+            return candidateBudget;
+        }
+
+        public long getEnumerationTimeBudget() {
+            return enumerationTimeBudget;
+        }
+
+        public CandidateSearch getCandidateSearch() {
+            return candidateSearch;
+        }
+
+        public double getBoundSlack() {
+            return boundSlack;
+        }
+
+        public long getTimeBudget() {
+            return timeBudget;
+        }
+
+        public long getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        public String getCheckpointPath() {
+            return checkpointPath;
+        }
+
+        public long getCheckpointInterval() {
+            return checkpointInterval;
+        }
+
+        public SurrogatePolicy getSurrogatePolicy() {
+            return surrogatePolicy;
+        }
+
+        public int getSurrogateWarmUp() {
+            return surrogateWarmUp;
+        }
+
+        public double getSurrogateMargin() {
+            return surrogateMargin;
+        }
+
+        public int getLocalSearchBudget() {
+            return localSearchBudget;
+        }
+
+        public int getForkMinTraces() {
+            return forkMinTraces;
+        }
+
+        public ThresholdSelection getThresholdSelection() {
+            return thresholdSelection;
+        }
+
+        public int getHalvingSampleSize() {
+            return halvingSampleSize;
+        }
+
+        public double getHalvingConfidence() {
+            return halvingConfidence;
+        }
     }
     //endregion
 
@@ -108,6 +388,25 @@ public class AdaptiveNoiseConfiguration {
         this.partitionNoiseFilter = builder.getPartitionNoiseFilter();
         this.preExecuteFilter = builder.isPreExecuteFilter();
         this.logSplitter = builder.getLogSplitter();
+        this.shortListSize = builder.getShortListSize();
+        this.conformanceStorePath = builder.getConformanceStorePath();
+        this.maxChanges = builder.getMaxChanges();
+        this.candidateBudget = builder.getCandidateBudget();
+        this.enumerationTimeBudget = builder.getEnumerationTimeBudget();
+        this.candidateSearch = builder.getCandidateSearch();
+        this.boundSlack = builder.getBoundSlack();
+        this.timeBudget = builder.getTimeBudget();
+        this.memoryBudget = builder.getMemoryBudget();
+        this.checkpointPath = builder.getCheckpointPath();
+        this.checkpointInterval = builder.getCheckpointInterval();
+        this.surrogatePolicy = builder.getSurrogatePolicy();
+        this.surrogateWarmUp = builder.getSurrogateWarmUp();
+        this.surrogateMargin = builder.getSurrogateMargin();
+        this.localSearchBudget = builder.getLocalSearchBudget();
+        this.forkMinTraces = builder.getForkMinTraces();
+        this.thresholdSelection = builder.getThresholdSelection();
+        this.halvingSampleSize = builder.getHalvingSampleSize();
+        this.halvingConfidence = builder.getHalvingConfidence();
     }
 
     public float[] getNoiseThresholds() {
@@ -142,4 +441,121 @@ public class AdaptiveNoiseConfiguration {
     public Class<? extends ILogSplitter> getLogSplitter() {
         return logSplitter;
     }
+
+    public int getShortListSize() {
+        return shortListSize;
+    }
+
+    public String getConformanceStorePath() {
+        return conformanceStorePath;
+    }
+
+    public int getMaxChanges() {
+        return maxChanges;
+    }
+
+    public int getCandidateBudget() {
+        return candidateBudget;
+    }
+
+    public long getEnumerationTimeBudget() {
+        return enumerationTimeBudget;
+    }
+
+    public CandidateSearch getCandidateSearch() {
+        return candidateSearch;
+    }
+
+    public double getBoundSlack() {
+        return boundSlack;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public String getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public SurrogatePolicy getSurrogatePolicy() {
+        return surrogatePolicy;
+    }
+
+    public int getSurrogateWarmUp() {
+        return surrogateWarmUp;
+    }
+
+    public double getSurrogateMargin() {
+        return surrogateMargin;
+    }
+
+    public int getLocalSearchBudget() {
+        return localSearchBudget;
+    }
+
+    public int getForkMinTraces() {
+        return forkMinTraces;
+    }
+
+    public ThresholdSelection getThresholdSelection() {
+        return thresholdSelection;
+    }
+
+    public int getHalvingSampleSize() {
+        return halvingSampleSize;
+    }
+
+    public double getHalvingConfidence() {
+        return halvingConfidence;
+    }
+
+    /**
+     * @param fingerprint identifies the run the checkpoint belongs to
+     * @param resume true to keep what a previous run with the same fingerprint checkpointed
+     * @return the configured checkpoint, or null if none is configured or it cannot be opened
+     */
+    public SearchCheckpoint openCheckpoint(String fingerprint, boolean resume) {
+        if (checkpointPath == null){
+            return null;
+        }
+
+        try {
+            return SearchCheckpoint.open(checkpointPath, fingerprint, resume, checkpointInterval);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("checkpoint %s is unavailable", checkpointPath), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return a deadline for a mining run started now, with the configured time and memory budgets
+     */
+    public Deadline startDeadline() {
+        return new Deadline(timeBudget, memoryBudget << 20);
+    }
+
+    /**
+     * @return the configured conformance store, or null if none is configured or it cannot be opened
+     */
+    public ConformanceStore openConformanceStore() {
+        if (conformanceStorePath == null){
+            return null;
+        }
+
+        try {
+            return ConformanceStore.open(conformanceStorePath);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("conformance store %s is unavailable", conformanceStorePath), e);
+            return null;
+        }
+    }
 }
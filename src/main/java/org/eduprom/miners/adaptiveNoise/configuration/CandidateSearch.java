@@ -0,0 +1,25 @@
+package org.eduprom.miners.adaptiveNoise.configuration;
+
+/**
+ * How the adaptive noise miner searches the candidate trees of a partitioning.
+ */
+public enum CandidateSearch {
+    /**
+     * Enumerates the candidates (within the configured budgets) and computes the conformance of all of them,
+     * the exact mode.
+     */
+    EXHAUSTIVE,
+
+    /**
+     * Explores the candidates depth first and cuts every branch whose estimated optimistic psi cannot beat the
+     * best candidate found so far. The estimates are not upper bounds: with the default infinite bound slack no
+     * branch is cut and the result is the exhaustive optimum, a finite slack trades exactness for speed.
+     */
+    BRANCH_AND_BOUND,
+
+    /**
+     * Hill climbing with random restarts over the sets of changes, evaluates at most the configured number of
+     * sets, for partitionings whose candidates are too many to enumerate.
+     */
+    LOCAL_SEARCH
+}
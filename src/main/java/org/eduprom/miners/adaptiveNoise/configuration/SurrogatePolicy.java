@@ -0,0 +1,23 @@
+package org.eduprom.miners.adaptiveNoise.configuration;
+
+/**
+ * How the learned psi surrogate (see {@link org.eduprom.miners.adaptiveNoise.search.PsiSurrogate}) decides
+ * which candidates get an exact conformance computation.
+ */
+public enum SurrogatePolicy {
+    /**
+     * The surrogate is not used, every candidate is computed exactly.
+     */
+    EXACT,
+
+    /**
+     * Every candidate is computed exactly, in decreasing order of predicted psi.
+     */
+    RANK,
+
+    /**
+     * Candidates are computed in decreasing order of predicted psi, candidates whose predicted psi plus the
+     * configured margin does not beat the best model are skipped.
+     */
+    PRUNE
+}
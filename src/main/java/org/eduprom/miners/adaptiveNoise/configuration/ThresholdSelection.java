@@ -0,0 +1,18 @@
+package org.eduprom.miners.adaptiveNoise.configuration;
+
+/**
+ * How {@link org.eduprom.miners.adaptiveNoise.AdaMiner} chooses the noise threshold of a node.
+ */
+public enum ThresholdSelection {
+    /**
+     * Every threshold is evaluated on the whole training and validation folds of the node.
+     */
+    EXHAUSTIVE,
+
+    /**
+     * The thresholds are scored on growing samples of the folds and the worse half is dropped after every
+     * sample (see {@link org.eduprom.miners.adaptiveNoise.search.SuccessiveHalving}), only the survivors are
+     * evaluated on the whole folds.
+     */
+    SUCCESSIVE_HALVING
+}
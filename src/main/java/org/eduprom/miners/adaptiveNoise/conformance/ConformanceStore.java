@@ -0,0 +1,206 @@
+package org.eduprom.miners.adaptiveNoise.conformance;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.io.CountingInputStream;
+import org.deckfour.xes.model.XLog;
+import org.eduprom.benchmarks.configuration.Weights;
+import org.eduprom.utils.LogHelper;
+import org.eduprom.utils.ProcessTreeKey;
+import org.processmining.processtree.ProcessTree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local append-only store of conformance results, shared across runs.
+ *
+ * Only the raw measures (fitness, precision, generalization) are persisted, so a stored result can be
+ * re-weighted, which makes weight sweeps over the same logs and trees free after the first pass.
+ * Keys combine a kind (what the measures mean), the content hash of the logs and a hash of the tree.
+ */
+public class ConformanceStore implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(ConformanceStore.class.getName());
+    private static final int MAGIC = 0x43534631;
+    private static final Map<String, ConformanceStore> stores = new ConcurrentHashMap<>();
+
+    //region private members
+
+    private final File file;
+    private final Map<String, double[]> entries = new ConcurrentHashMap<>();
+    //weak identity keys, the miners build fresh fold and sample logs all the time
+    private final Map<XLog, String> logHashes = new MapMaker().weakKeys().makeMap();
+    private final LogHelper logHelper = new LogHelper();
+    private DataOutputStream output;
+
+    //endregion
+
+    //region private methods
+
+    /**
+     * Loads the records of the file.
+     *
+     * @return the length of the valid prefix of the file
+     */
+    private long load() throws IOException {
+        if (!file.isFile() || file.length() == 0){
+            return 0;
+        }
+
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try (DataInputStream input = new DataInputStream(counter)) {
+            try {
+                if (input.readInt() != MAGIC){
+                    throw new IOException(String.format("%s is not a conformance store", file));
+                }
+            }
+            catch (EOFException e){
+                return 0;
+            }
+
+            while (true){
+                long valid = counter.getCount();
+                String key;
+                double[] values = new double[3];
+                try {
+                    key = input.readUTF();
+                    for (int i = 0; i < values.length; i++){
+                        values[i] = input.readDouble();
+                    }
+                }
+                catch (EOFException e){
+                    //the last record may be partial when a previous run was killed while writing
+                    return valid;
+                }
+                entries.put(key, values);
+            }
+        }
+    }
+
+    //endregion
+
+    //region constructors
+
+    private ConformanceStore(File file) throws IOException {
+        this.file = file;
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.exists()){
+            directory.mkdirs();
+        }
+
+        long valid = load();
+        if (valid > 0){
+            //drop a partial last record before appending
+            try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+                access.setLength(valid);
+            }
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        }
+        else {
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+            output.writeInt(MAGIC);
+            output.flush();
+        }
+        logger.info(String.format("conformance store %s opened with %d entries", file, entries.size()));
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Opens the store at the given path, stores are shared by all callers opening the same path.
+     */
+    public static ConformanceStore open(String path) throws IOException {
+        String key = new File(path).getCanonicalPath();
+        ConformanceStore store = stores.get(key);
+        if (store == null){
+            synchronized (stores){
+                store = stores.get(key);
+                if (store == null){
+                    store = new ConformanceStore(new File(key));
+                    stores.put(key, store);
+                }
+            }
+        }
+        return store;
+    }
+
+    public String getLogHash(XLog log){
+        return logHashes.computeIfAbsent(log, logHelper::hash);
+    }
+
+    public String getTreeHash(ProcessTree tree){
+        return ProcessTreeKey.of(tree).toString();
+    }
+
+    public String getKey(String kind, XLog trainLog, XLog testLog, ProcessTree tree){
+        return String.format("%s:%s:%s:%s", kind, getLogHash(trainLog), getLogHash(testLog), getTreeHash(tree));
+    }
+
+    /**
+     * Key of a result measured on a single log.
+     */
+    public String getKey(String kind, XLog log, ProcessTree tree){
+        return String.format("%s:%s:%s", kind, getLogHash(log), getTreeHash(tree));
+    }
+
+    /**
+     * @return the stored result weighted by the given weights, or null if the key was never stored
+     */
+    public ConformanceInfo get(String key, Weights weights){
+        double[] values = entries.get(key);
+        if (values == null){
+            return null;
+        }
+
+        ConformanceInfo info = new ConformanceInfo(weights);
+        info.setFitness(values[0]);
+        info.setPrecision(values[1]);
+        info.setGeneralization(values[2]);
+        return info;
+    }
+
+    public synchronized void put(String key, ConformanceInfo info){
+        if (!info.assigned() || entries.containsKey(key)){
+            return;
+        }
+
+        double[] values = new double[] { info.getFitness(), info.getPrecision(), info.getGeneralization() };
+        try {
+            output.writeUTF(key);
+            for (double value : values){
+                output.writeDouble(value);
+            }
+            output.flush();
+            entries.put(key, values);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to persist conformance result to %s", file), e);
+        }
+    }
+
+    public int size(){
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+        stores.remove(file.getCanonicalPath());
+    }
+
+    //endregion
+}
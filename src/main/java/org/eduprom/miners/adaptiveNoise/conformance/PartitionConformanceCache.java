@@ -0,0 +1,151 @@
+package org.eduprom.miners.adaptiveNoise.conformance;
+
+import org.deckfour.xes.model.XLog;
+import org.eduprom.benchmarks.configuration.Weights;
+import org.eduprom.exceptions.MiningException;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
+import org.eduprom.partitioning.Partitioning;
+import org.eduprom.utils.PetrinetHelper;
+import org.eduprom.utils.PocessTreeHelper;
+import org.eduprom.utils.ProcessTreeKey;
+import org.processmining.plugins.petrinet.replayresult.PNRepResult;
+import org.processmining.plugins.pnalignanalysis.conformance.AlignmentPrecGenRes;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.eduprom.miners.adaptiveNoise.AdaptiveNoiseMiner.FITNESS_KEY;
+
+/**
+ * Caches the conformance of a subtree on the sublog of the partition it replaces.
+ *
+ * Entries are keyed by (partition id, replacement tree), so a partition that is replaced by the same
+ * subtree in many candidates is aligned only once. The psi of a candidate is then estimated by composing
+ * the baseline psi with the psi differences of its replaced partitions, weighted by the share of the
+ * log (in events) each partition covers.
+ */
+public class PartitionConformanceCache {
+
+    //region private members
+
+    private final PetrinetHelper petrinetHelper;
+    private final Weights weights;
+    private final PocessTreeHelper treeHelper = new PocessTreeHelper();
+    private final Map<String, ConformanceInfo> cache = new ConcurrentHashMap<>();
+    private final Map<UUID, ProcessTree> baselineSubtrees = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    //endregion
+
+    //region private methods
+
+    private static String getKey(Partitioning.PartitionInfo partitionInfo, ProcessTree tree){
+        return String.format("%s:%s", partitionInfo.getId(), ProcessTreeKey.of(tree));
+    }
+
+    private ConformanceInfo compute(ProcessTree tree, XLog log) throws MiningException {
+        ConformanceInfo info = new ConformanceInfo(weights);
+        ProcessTree2Petrinet.PetrinetWithMarkings res = PetrinetHelper.ConvertToPetrinetCached(tree);
+        PNRepResult alignment = petrinetHelper.getCompleteAlignment(log, res.petrinet, res.initialMarking, res.finalMarking);
+        info.setFitness(Double.parseDouble(alignment.getInfo().get(FITNESS_KEY).toString()));
+
+        AlignmentPrecGenRes alignmentPrecGenRes = petrinetHelper.getConformance(log, res.petrinet, alignment, res.initialMarking, res.finalMarking);
+        info.setPrecision(alignmentPrecGenRes.getPrecision());
+        info.setGeneralization(alignmentPrecGenRes.getGeneralization());
+        return info;
+    }
+
+    private ProcessTree getBaselineSubtree(Partitioning.PartitionInfo partitionInfo) throws MiningException {
+        ProcessTree tree = baselineSubtrees.get(partitionInfo.getId());
+        if (tree == null){
+            tree = treeHelper.extract(partitionInfo.getNode());
+            baselineSubtrees.putIfAbsent(partitionInfo.getId(), tree);
+        }
+        return tree;
+    }
+
+    //endregion
+
+    //region constructors
+
+    public PartitionConformanceCache(PetrinetHelper petrinetHelper, Weights weights){
+        this.petrinetHelper = petrinetHelper;
+        this.weights = weights;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * @return the conformance of the given tree on the sublog of the given partition
+     */
+    public ConformanceInfo get(Partitioning.PartitionInfo partitionInfo, ProcessTree tree) throws MiningException {
+        String key = getKey(partitionInfo, tree);
+        ConformanceInfo info = cache.get(key);
+        if (info != null){
+            hits.incrementAndGet();
+            return info;
+        }
+
+        misses.incrementAndGet();
+        info = compute(tree, partitionInfo.getLog());
+        ConformanceInfo existing = cache.putIfAbsent(key, info);
+        return existing != null ? existing : info;
+    }
+
+    /**
+     * @return the conformance of the baseline subtree of the given partition on its sublog
+     */
+    public ConformanceInfo getBaseline(Partitioning.PartitionInfo partitionInfo) throws MiningException {
+        return get(partitionInfo, getBaselineSubtree(partitionInfo));
+    }
+
+    /**
+     * Estimates the psi of a candidate from the cached partition contributions.
+     *
+     * @param candidate the candidate to estimate
+     * @param root the root partition of the candidate's partitioning
+     * @return the baseline psi adjusted by the weighted psi difference of every replaced partition
+     */
+    public double estimatePsi(TreeChanges candidate, Partitioning.PartitionInfo root) throws MiningException {
+        double psi = getBaseline(root).getPsi();
+        for (Change change : candidate.getChanges().getChanges()){
+            psi += estimateGain(change, root);
+        }
+
+        return psi;
+    }
+
+    /**
+     * @return the psi difference of the given change on its partition, weighted by the share of the log it covers
+     */
+    public double estimateGain(Change change, Partitioning.PartitionInfo root) throws MiningException {
+        double totalBits = Math.max(1, root.getBits());
+        Partitioning.PartitionInfo partitionInfo = change.getPartitionInfo();
+        double share = partitionInfo.getBits() / totalBits;
+        double replaced = get(partitionInfo, change.getProcessTree()).getPsi();
+        double baseline = getBaseline(partitionInfo).getPsi();
+        return share * (replaced - baseline);
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int size(){
+        return cache.size();
+    }
+
+    //endregion
+}
@@ -0,0 +1,170 @@
+package org.eduprom.miners.adaptiveNoise.conformance;
+
+import org.eduprom.benchmarks.configuration.Weights;
+import org.processmining.processtree.ProcessTree;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memo of the noise threshold evaluations of the adaptive miner, keyed by the fingerprint of a sublog.
+ *
+ * Branches of the recursion often see identical sublogs (the same loop body, identical parallel branches),
+ * whose thresholds then do not have to be mined and measured again. Only the raw measures are kept, so the
+ * memo can be shared by runs with different weights on the same log. Thresholds a selection dropped without
+ * measuring them are kept per selection, as they depend on the weights. The memo is bounded by its number of
+ * entries and by an estimate of their size, the least recently used entries are evicted first.
+ */
+public class ThresholdMemo {
+
+    private static final int DEFAULT_ENTRIES = 10000;
+    private static final long DEFAULT_BYTES = 64L << 20;
+    private static final long ENTRY_BYTES = 256;
+    private static final long NODE_BYTES = 192;
+
+    /**
+     * The tree mined with a threshold and its raw conformance measures.
+     */
+    public static class Evaluation {
+        private final ProcessTree tree;
+        private final double fitness;
+        private final double precision;
+        private final double generalization;
+
+        private Evaluation(ProcessTree tree, ConformanceInfo info){
+            this.tree = tree;
+            this.fitness = info.getFitness();
+            this.precision = info.getPrecision();
+            this.generalization = info.getGeneralization();
+        }
+
+        public ProcessTree getTree() {
+            return tree;
+        }
+
+        /**
+         * @return the conformance of the tree with the given weights
+         */
+        public ConformanceInfo getConformanceInfo(Weights weights) {
+            ConformanceInfo info = new ConformanceInfo(weights);
+            info.setFitness(fitness);
+            info.setPrecision(precision);
+            info.setGeneralization(generalization);
+            return info;
+        }
+    }
+
+    //region private members
+
+    private final int maxEntries;
+    private final long maxBytes;
+    //access ordered, the eldest entry is the least recently used
+    private final LinkedHashMap<String, Map<Float, Evaluation>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> sizes = new HashMap<>();
+    //per fingerprint, the thresholds every selection dropped
+    private final Map<String, Map<String, Set<Float>>> rejections = new HashMap<>();
+    private long bytes;
+    private int hits;
+    private int misses;
+
+    //endregion
+
+    //region private methods
+
+    private void evict(){
+        Iterator<Map.Entry<String, Map<Float, Evaluation>>> it = entries.entrySet().iterator();
+        while (it.hasNext() && (entries.size() > maxEntries || bytes > maxBytes)){
+            String fingerprint = it.next().getKey();
+            it.remove();
+            rejections.remove(fingerprint);
+            Long size = sizes.remove(fingerprint);
+            if (size != null){
+                bytes -= size;
+            }
+        }
+    }
+
+    //endregion
+
+    //region constructors
+
+    public ThresholdMemo(){
+        this(DEFAULT_ENTRIES, DEFAULT_BYTES);
+    }
+
+    /**
+     * @param maxEntries maximal number of sublogs kept
+     * @param maxBytes maximal estimated size of the kept evaluations in bytes
+     */
+    public ThresholdMemo(int maxEntries, long maxBytes){
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * @return the thresholds evaluated on the sublog with the given fingerprint, empty if there are none
+     */
+    public synchronized Map<Float, Evaluation> get(String fingerprint){
+        Map<Float, Evaluation> evaluations = entries.get(fingerprint);
+        if (evaluations == null || evaluations.isEmpty()){
+            misses++;
+            return evaluations == null ? new HashMap<>() : new HashMap<>(evaluations);
+        }
+        hits++;
+        return new HashMap<>(evaluations);
+    }
+
+    public synchronized void put(String fingerprint, float threshold, ProcessTree tree, ConformanceInfo info){
+        Map<Float, Evaluation> evaluations = entries.computeIfAbsent(fingerprint, x -> new HashMap<>());
+        if (evaluations.put(threshold, new Evaluation(tree, info)) == null){
+            long size = ENTRY_BYTES + NODE_BYTES * tree.getNodes().size();
+            sizes.merge(fingerprint, size, Long::sum);
+            bytes += size;
+        }
+        evict();
+    }
+
+    /**
+     * @param selection identifies the selection and its settings, e.g. successive halving with the given weights
+     * @return the thresholds the selection dropped on the sublog with the given fingerprint, null if the selection
+     * never ran on it
+     */
+    public synchronized Set<Float> getRejected(String fingerprint, String selection){
+        Map<String, Set<Float>> selections = rejections.get(fingerprint);
+        Set<Float> rejected = selections != null ? selections.get(selection) : null;
+        return rejected != null ? new HashSet<>(rejected) : null;
+    }
+
+    /**
+     * Records that the selection ran on the sublog with the given fingerprint and dropped the given thresholds.
+     */
+    public synchronized void reject(String fingerprint, String selection, Collection<Float> thresholds){
+        entries.computeIfAbsent(fingerprint, x -> new HashMap<>());
+        rejections.computeIfAbsent(fingerprint, x -> new HashMap<>())
+                .computeIfAbsent(selection, x -> new HashSet<>()).addAll(thresholds);
+        evict();
+    }
+
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    //endregion
+}
@@ -9,6 +9,7 @@ import org.eduprom.miners.adaptiveNoise.conformance.IConformanceContext;
 import org.eduprom.miners.adaptiveNoise.conformance.IAdaptiveNoiseConformanceObject;
 import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
 import org.eduprom.partitioning.Partitioning;
+import org.eduprom.utils.PersistentProcessTree;
 import org.processmining.processtree.ProcessTree;
 
 import java.util.Set;
@@ -22,6 +23,7 @@ public class Change implements IAdaptiveNoiseConformanceObject {
     private MiningResult result;
     private ConformanceInfo info;
     private IConformanceContext conformanceContext;
+    private volatile PersistentProcessTree.PersistentNode subtree;
 
 
     public Change(Partitioning.PartitionInfo partitionInfo, XLog log, NoiseInductiveMiner miner, IConformanceContext conformanceContext){
@@ -52,6 +54,7 @@ public class Change implements IAdaptiveNoiseConformanceObject {
     @Override
     public void setMiningResult(MiningResult result) {
         this.result = result;
+        this.subtree = null;
     }
 
     @Override
@@ -68,6 +71,16 @@ public class Change implements IAdaptiveNoiseConformanceObject {
         return this.result.getProcessTree();
     }
 
+    /**
+     * @return the mined tree as a subtree shared by every candidate that applies this change
+     */
+    public PersistentProcessTree.PersistentNode getSubtree() throws MiningException {
+        if (subtree == null){
+            subtree = PersistentProcessTree.node(getProcessTree().getRoot());
+        }
+        return subtree;
+    }
+
     public int getBitsRemoved() {
         return this.result.getFilterResult().getBitsRemoved();
     }
@@ -3,26 +3,26 @@ package org.eduprom.miners.adaptiveNoise.entities;
 import org.eduprom.exceptions.MiningException;
 import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
 import org.eduprom.partitioning.Partitioning;
-import org.eduprom.utils.PocessTreeHelper;
+import org.eduprom.utils.PersistentProcessTree;
+import org.eduprom.utils.ProcessTreeKey;
 import org.processmining.plugins.petrinet.replayresult.PNRepResult;
 import org.processmining.processtree.*;
 import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
 
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class TreeChanges {
     protected static final Logger logger = Logger.getLogger(TreeChanges.class.getName());
-    protected static final PocessTreeHelper helper = new PocessTreeHelper();
 
     //protected static TreeChangesSet treeChangesCache = new TreeChangesSet();
 
-    private final Lock lock = new ReentrantLock();
-    private ProcessTree modifiedProcessTree;
+    //candidates share every node they did not change, the ProM tree is only built when it is needed
+    private PersistentProcessTree tree;
+    private volatile ProcessTree modifiedProcessTree;
+    private ProcessTreeKey key;
     private Partitioning pratitioning;
 
     private HashMap<UUID, UUID> newIds;
@@ -42,22 +42,30 @@ public class TreeChanges {
         this.explored = new HashSet<>();
         this.conformanceInfo = conformanceInfo;
         this.id = UUID.randomUUID();
-        setModifiedProcessTree(pratitioning.getProcessTree().toTree());
+        setModifiedProcessTree(pratitioning.getProcessTree());
+    }
+
+    private TreeChanges(Partitioning pratitioning, ConformanceInfo conformanceInfo, PersistentProcessTree tree){
+        this.changes = new TreeChangesSet();
+        this.newIds = new HashMap<>();
+        this.pratitioning = pratitioning;
+        this.explored = new HashSet<>();
+        this.conformanceInfo = conformanceInfo;
+        this.id = UUID.randomUUID();
+        this.tree = tree;
     }
 
     public boolean Add(Change change) throws MiningException {
-        Node localNode = modifiedProcessTree.getNode(change.getId());
         this.explored.addAll(change.getReplacedNodes());
-        if (pratitioning.getPartitions().containsKey(change.getId()) && localNode != null){
+        if (pratitioning.getPartitions().containsKey(change.getId()) && tree.contains(change.getId())){
 
             changes.getChanges().add(change);
-            UUID id = change.getId();
-            ProcessTree pt = change.getProcessTree();
+            PersistentProcessTree.PersistentNode subtree = change.getSubtree();
             //logger.info(String.format("replaced process tree: %s  with: %s", localNode.toString(), pt.toString()));
-            //logger.info("new: " + pt.toString());
-            //logger.info("old: " + localNode.toString());
-            helper.merge(pt.getRoot(), localNode);
-            newIds.put(change.getId(), pt.getRoot().getID());
+            tree = tree.replace(change.getId(), subtree);
+            modifiedProcessTree = null;
+            key = null;
+            newIds.put(change.getId(), subtree.getId());
             return true;
         }
 
@@ -65,8 +73,10 @@ public class TreeChanges {
     }
 
     public TreeChanges ToTreeChanges() throws MiningException {
-        TreeChanges treeChanges = new TreeChanges(pratitioning, this.getConformanceInfo().CloneWeights());
-        treeChanges.modifiedProcessTree = this.modifiedProcessTree.toTree();
+        //the trees are immutable, the copy shares the tree until it changes it
+        TreeChanges treeChanges = new TreeChanges(pratitioning, this.getConformanceInfo().CloneWeights(), this.tree);
+        treeChanges.modifiedProcessTree = this.modifiedProcessTree;
+        treeChanges.key = this.key;
         treeChanges.changes.getChanges().addAll(this.changes.getChanges());
         treeChanges.newIds.putAll(this.newIds);
         treeChanges.explored.addAll(this.explored);
@@ -90,7 +100,11 @@ public class TreeChanges {
                 sb.append(change.toString());
             }
         sb.append("MODIFIED TREE: ");
-        sb.append(this.getModifiedProcessTree().toString());
+        try {
+            sb.append(this.getModifiedProcessTree().toString());
+        } catch (MiningException e) {
+            sb.append(e.getMessage());
+        }
 
         return sb.toString();
     }
@@ -103,18 +117,42 @@ public class TreeChanges {
 
         Change minerEntry = entryOptional.get();
         UUID id = newIds.get(minerEntry.getId());
-        return modifiedProcessTree.getNode(id) != null && modifiedProcessTree.getNode(id).isRoot() && changes.getChanges().size() == 1;
+        return tree.getRoot().getId().equals(id) && changes.getChanges().size() == 1;
     }
 
     public void setModifiedProcessTree(ProcessTree pt){
         if (pt == null){
             throw new IllegalArgumentException("process tree cannot be null");
         }
+        this.tree = PersistentProcessTree.of(pt);
         this.modifiedProcessTree = pt;
+        this.key = null;
+    }
+
+    /**
+     * @return the modified tree as a ProM tree, built on first use and shared afterwards, must not be changed
+     */
+    public ProcessTree getModifiedProcessTree() throws MiningException {
+        ProcessTree pt = this.modifiedProcessTree;
+        if (pt == null){
+            pt = tree.toProcessTree();
+            this.modifiedProcessTree = pt;
+        }
+        return pt;
+    }
+
+    public PersistentProcessTree getTree(){
+        return this.tree;
     }
 
-    public ProcessTree getModifiedProcessTree(){
-        return this.modifiedProcessTree;
+    /**
+     * @return the canonical key of the modified tree, the identity of the candidate in maps and caches
+     */
+    public ProcessTreeKey getKey(){
+        if (key == null){
+            key = ProcessTreeKey.of(tree);
+        }
+        return key;
     }
 
     public int getNumberOfChanges(){
@@ -129,7 +167,7 @@ public class TreeChanges {
     public Stream<Change> getApplicableChanges(Set<Change> baseline){
         return baseline.stream()
                 .filter(x -> !this.explored.contains(x.getId()))
-                .filter(x -> this.modifiedProcessTree.getNode(x.getId()) != null);
+                .filter(x -> this.tree.contains(x.getId()));
     }
 
     public TreeChangesSet getChanges(){
@@ -158,9 +196,8 @@ public class TreeChanges {
         //        .filter(x -> !filtered.contains(x.getKey()))
         //        .collect(Collectors.toMap(y -> y.getKey(), y -> y.getValue()));
 
-        Set<UUID> ids = this.getModifiedProcessTree().getNodes().stream().map(y->y.getID()).collect(Collectors.toSet());
         return this.pratitioning.getPartitions().entrySet().stream()
-                .filter(x-> ids.contains(x.getKey()))
+                .filter(x-> this.tree.contains(x.getKey()))
                 .collect(Collectors.toMap(y -> y.getKey(), y -> y.getValue()));
     }
 
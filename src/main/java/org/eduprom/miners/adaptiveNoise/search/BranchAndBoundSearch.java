@@ -0,0 +1,111 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.exceptions.MiningException;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Depth first branch and bound over sets of pairwise unrelated changes.
+ *
+ * Unrelated partitions replace disjoint subtrees, so the psi of a set is bounded by the psi of its
+ * parent set plus the positive per-partition gains of the changes that may still be added (see
+ * {@link org.eduprom.miners.adaptiveNoise.conformance.PartitionConformanceCache#estimateGain}).
+ * A branch is cut when this optimistic bound, widened by the configured slack, does not beat the
+ * incumbent (the best candidate evaluated so far). Children are visited in decreasing order of gain, so
+ * good incumbents are found early.
+ *
+ * The per-partition gains are estimates, not upper bounds, since psi is not additive over partitions, so no
+ * finite slack is safe in general. With an infinite slack (the default of the configuration) no branch is cut,
+ * every set is evaluated and the result is the optimum of the exhaustive enumeration; a finite slack makes the
+ * search a heuristic that may cut the branch holding the optimum.
+ */
+public class BranchAndBoundSearch {
+
+    //region private members
+
+    private final ChangeOptions options;
+    private final int maxChanges;
+    private final double slack;
+    private final ICandidateEvaluator evaluator;
+    private final int[] indices;
+
+    private int explored;
+    private int pruned;
+
+    //endregion
+
+    //region private methods
+
+    private void search(int length, int start) throws MiningException {
+        double upper = evaluator.evaluate(options.toChanges(indices, length));
+        explored++;
+        if (length >= maxChanges || upper == Double.NEGATIVE_INFINITY){
+            return;
+        }
+
+        BitSet blocked = options.getBlocked(indices, length);
+        for (int option = blocked.nextClearBit(start); option < options.size(); option = blocked.nextClearBit(option + 1)){
+            indices[length] = option;
+            double bound = upper + options.getGain(option)
+                    + options.getOptimisticGain(options.getBlocked(blocked, option), option + 1, maxChanges - length - 1);
+            if (bound + slack <= evaluator.getIncumbent()){
+                pruned++;
+                continue;
+            }
+
+            search(length + 1, option + 1);
+        }
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * @param options the change options
+     * @param gains the estimated psi gain of every option
+     * @param maxChanges maximal number of changes in a set
+     * @param slack added to every bound, {@link Double#POSITIVE_INFINITY} cuts nothing and keeps the search exact
+     * @param evaluator computes the psi of candidates and keeps the incumbent
+     */
+    public BranchAndBoundSearch(Collection<Change> options, Map<Change, Double> gains, int maxChanges, double slack,
+                                ICandidateEvaluator evaluator){
+        this.options = new ChangeOptions(options, gains);
+        this.maxChanges = maxChanges;
+        this.slack = slack;
+        this.evaluator = evaluator;
+        this.indices = new int[Math.max(0, maxChanges)];
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Runs the search, the optimum is the incumbent of the evaluator once it returns.
+     */
+    public void search() throws MiningException {
+        explored = 0;
+        pruned = 0;
+        search(0, 0);
+    }
+
+    /**
+     * @return the number of candidates evaluated
+     */
+    public int getExplored() {
+        return explored;
+    }
+
+    /**
+     * @return the number of branches cut by their bound
+     */
+    public int getPruned() {
+        return pruned;
+    }
+
+    //endregion
+}
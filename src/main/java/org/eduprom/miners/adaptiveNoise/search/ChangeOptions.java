@@ -0,0 +1,111 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Change options in canonical order (decreasing estimated gain, then partition and noise threshold, so
+ * runs are reproducible) with their pairwise partition relation precomputed.
+ *
+ * The options related to an option are kept as a bitset, so the options blocked by a whole set of changes are
+ * the union of the bitsets of its changes, and compatibility with the set is a single bit test.
+ */
+class ChangeOptions {
+
+    //region private members
+
+    private final List<Change> options;
+    private final double[] gains;
+    private final BitSet[] related;
+
+    //endregion
+
+    //region constructors
+
+    ChangeOptions(Collection<Change> options, Map<Change, Double> gains){
+        this.options = new ArrayList<>(options);
+        this.options.sort(Comparator.<Change>comparingDouble(x -> -gains.getOrDefault(x, 0.0))
+                .thenComparingInt(x -> x.getPartitionInfo().getSequentialId())
+                .thenComparingDouble(x -> x.getMiner().getNoiseThreshold()));
+
+        int size = this.options.size();
+        this.gains = new double[size];
+        this.related = new BitSet[size];
+        for (int i = 0; i < size; i++){
+            this.gains[i] = gains.getOrDefault(this.options.get(i), 0.0);
+            related[i] = new BitSet(size);
+        }
+        for (int i = 0; i < size; i++){
+            for (int j = i; j < size; j++){
+                //constant time, see the partition index of the partitioning
+                if (this.options.get(i).getPartitionInfo().isRalated(this.options.get(j).getPartitionInfo())){
+                    related[i].set(j);
+                    related[j].set(i);
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region package methods
+
+    int size(){
+        return options.size();
+    }
+
+    double getGain(int option){
+        return gains[option];
+    }
+
+    /**
+     * @return the options related to at least one option of the set
+     */
+    BitSet getBlocked(int[] indices, int length){
+        BitSet blocked = new BitSet(options.size());
+        for (int i = 0; i < length; i++){
+            blocked.or(related[indices[i]]);
+        }
+        return blocked;
+    }
+
+    /**
+     * @return the options blocked by the set and by the given option
+     */
+    BitSet getBlocked(BitSet blocked, int option){
+        BitSet result = (BitSet) blocked.clone();
+        result.or(related[option]);
+        return result;
+    }
+
+    /**
+     * @return the sum of the best positive gains of at most {@code count} options from {@code start} on that are
+     * not blocked
+     */
+    double getOptimisticGain(BitSet blocked, int start, int count){
+        double gain = 0;
+        //options are sorted by decreasing gain
+        for (int option = blocked.nextClearBit(start); option < options.size() && count > 0 && gains[option] > 0;
+             option = blocked.nextClearBit(option + 1)){
+            gain += gains[option];
+            count--;
+        }
+        return gain;
+    }
+
+    List<Change> toChanges(int[] indices, int length){
+        List<Change> changes = new ArrayList<>(length);
+        for (int i = 0; i < length; i++){
+            changes.add(options.get(indices[i]));
+        }
+        return changes;
+    }
+
+    //endregion
+}
@@ -0,0 +1,167 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Lazily enumerates sets of pairwise unrelated changes in decreasing order of estimated psi gain.
+ *
+ * The gain of a set is the sum of the estimated gains of its changes. Sets are generated best-first
+ * from a priority queue: every set is extended only with changes that come after its last change in
+ * a canonical order and whose partitions are unrelated to all of its partitions, so every set is
+ * generated exactly once and related partitions are never combined. A set is emitted only once no
+ * pending extension can beat it, hence the emission order is exact. Enumeration stops at the
+ * candidate budget or the time budget, whichever comes first. The first set emitted is the empty set
+ * (the baseline), it is emitted regardless of the budgets and does not count against them.
+ */
+public class ChangeSetEnumerator implements Iterator<List<Change>> {
+
+    //region nested classes
+
+    private static class Entry {
+        private final int[] indices;
+        private final double gain;
+        private final double priority;
+        private final boolean expand;
+
+        private Entry(int[] indices, double gain, double priority, boolean expand){
+            this.indices = indices;
+            this.gain = gain;
+            this.priority = priority;
+            this.expand = expand;
+        }
+    }
+
+    //endregion
+
+    //region private members
+
+    private final ChangeOptions options;
+    private final int maxChanges;
+    private final int candidateBudget;
+    private final long deadline;
+    private final PriorityQueue<Entry> queue;
+    private int emitted;
+    private Entry next;
+
+    //endregion
+
+    //region private methods
+
+    /**
+     * @param blocked the options related to the set
+     */
+    private void push(int[] indices, double gain, BitSet blocked){
+        queue.add(new Entry(indices, gain, gain, false));
+        pushExpansion(indices, gain, blocked);
+    }
+
+    private void pushExpansion(int[] indices, double gain, BitSet blocked){
+        if (indices.length < maxChanges){
+            int start = indices.length == 0 ? 0 : indices[indices.length - 1] + 1;
+            double bound = gain + options.getOptimisticGain(blocked, start, maxChanges - indices.length);
+            queue.add(new Entry(indices, gain, bound, true));
+        }
+    }
+
+    private void expand(Entry entry){
+        int start = entry.indices.length == 0 ? 0 : entry.indices[entry.indices.length - 1] + 1;
+        BitSet blocked = options.getBlocked(entry.indices, entry.indices.length);
+        for (int option = blocked.nextClearBit(start); option < options.size(); option = blocked.nextClearBit(option + 1)){
+            int[] indices = new int[entry.indices.length + 1];
+            System.arraycopy(entry.indices, 0, indices, 0, entry.indices.length);
+            indices[entry.indices.length] = option;
+            push(indices, entry.gain + options.getGain(option), options.getBlocked(blocked, option));
+        }
+    }
+
+    private Entry advance(){
+        if (emitted >= candidateBudget || System.currentTimeMillis() > deadline){
+            return null;
+        }
+
+        while (!queue.isEmpty()){
+            Entry entry = queue.poll();
+            if (!entry.expand){
+                return entry;
+            }
+            expand(entry);
+        }
+        return null;
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * @param options the change options
+     * @param gains the estimated psi gain of every option, missing options are assumed neutral
+     * @param maxChanges maximal number of changes in a set
+     * @param candidateBudget maximal number of sets to emit, 0 for no limit
+     * @param timeBudgetMillis maximal enumeration time in milliseconds, 0 for no limit
+     */
+    public ChangeSetEnumerator(Collection<Change> options, Map<Change, Double> gains, int maxChanges,
+                               int candidateBudget, long timeBudgetMillis){
+        this.options = new ChangeOptions(options, gains);
+        this.maxChanges = maxChanges;
+        this.candidateBudget = candidateBudget > 0 ? candidateBudget : Integer.MAX_VALUE;
+        this.deadline = timeBudgetMillis > 0 ? System.currentTimeMillis() + timeBudgetMillis : Long.MAX_VALUE;
+        //highest priority first, at equal priority emit before expanding
+        this.queue = new PriorityQueue<>(Comparator.<Entry>comparingDouble(x -> -x.priority)
+                .thenComparing(x -> x.expand));
+        //the baseline is emitted first, only its extensions are queued
+        this.next = new Entry(new int[0], 0, 0, false);
+        pushExpansion(next.indices, 0, new BitSet());
+    }
+
+    //endregion
+
+    //region public methods
+
+    @Override
+    public boolean hasNext() {
+        if (next == null){
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public List<Change> next() {
+        if (!hasNext()){
+            throw new NoSuchElementException();
+        }
+
+        List<Change> changes = options.toChanges(next.indices, next.indices.length);
+        if (next.indices.length > 0){
+            emitted++;
+        }
+        next = null;
+        return changes;
+    }
+
+    /**
+     * @return the number of sets emitted so far, the baseline excluded
+     */
+    public int getEmitted() {
+        return emitted;
+    }
+
+    /**
+     * @return true if the enumeration stopped on a budget before all sets were generated
+     */
+    public boolean isTruncated() {
+        return next != null || !queue.isEmpty();
+    }
+
+    //endregion
+}
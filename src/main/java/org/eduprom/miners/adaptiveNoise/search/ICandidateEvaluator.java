@@ -0,0 +1,22 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.exceptions.MiningException;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+
+import java.util.List;
+
+public interface ICandidateEvaluator {
+
+    /**
+     * Evaluates the candidate obtained by applying the given changes to the baseline tree.
+     *
+     * @return the psi of the candidate, or an upper bound of it when the evaluation was cut short
+     * because the candidate cannot beat the incumbent
+     */
+    double evaluate(List<Change> changes) throws MiningException;
+
+    /**
+     * @return the psi of the best candidate evaluated so far
+     */
+    double getIncumbent();
+}
@@ -0,0 +1,229 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.exceptions.MiningException;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.utils.MiningPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Hill climbing with random restarts over sets of pairwise unrelated changes, for partitionings whose
+ * candidates are too many to enumerate.
+ *
+ * The neighbours of a set add, remove or swap a single change. Every step evaluates a random batch of
+ * unseen neighbours in parallel and moves to the best one if it improves on the current set, the climb
+ * restarts from a random set once a few batches in a row do not improve. Every set is evaluated at most
+ * once and the search stops after the given number of evaluations. Sets the evaluator rejects (see
+ * {@link org.eduprom.miners.adaptiveNoise.entities.TreeChanges#Add}) are worth negative infinity.
+ */
+public class LocalSearch {
+
+    private static final int PATIENCE = 2;
+    private static final int MAX_IDLE_RESTARTS = 100;
+
+    //region private members
+
+    private final ChangeOptions options;
+    private final int maxChanges;
+    private final int budget;
+    private final int batchSize;
+    private final ICandidateEvaluator evaluator;
+    private final Random random;
+    private final Map<String, Double> evaluated = new HashMap<>();
+
+    private int restarts;
+
+    //endregion
+
+    //region private methods
+
+    private static String getKey(int[] set){
+        return Arrays.toString(set);
+    }
+
+    private static int[] with(int[] set, int skip, int option){
+        int[] result = new int[skip < 0 ? set.length + 1 : set.length];
+        int length = 0;
+        for (int i = 0; i < set.length; i++){
+            if (i != skip){
+                result[length++] = set[i];
+            }
+        }
+        if (option >= 0){
+            result[length++] = option;
+        }
+        Arrays.sort(result, 0, length);
+        return length == result.length ? result : Arrays.copyOf(result, length);
+    }
+
+    private List<int[]> getNeighbours(int[] set){
+        List<int[]> neighbours = new ArrayList<>();
+        //the options blocked by the set, and by the set without each of its changes
+        BitSet blocked = options.getBlocked(set, set.length);
+        BitSet[] blockedWithout = new BitSet[set.length];
+        for (int i = 0; i < set.length; i++){
+            int[] removed = with(set, i, -1);
+            neighbours.add(removed);
+            blockedWithout[i] = options.getBlocked(removed, removed.length);
+        }
+        for (int option = 0; option < options.size(); option++){
+            if (set.length < maxChanges && !blocked.get(option)){
+                neighbours.add(with(set, -1, option));
+            }
+            for (int i = 0; i < set.length; i++){
+                if (set[i] != option && !blockedWithout[i].get(option)){
+                    neighbours.add(with(set, i, option));
+                }
+            }
+        }
+        return neighbours;
+    }
+
+    private int[] getRandomSet(){
+        List<Integer> order = new ArrayList<>();
+        for (int option = 0; option < options.size(); option++){
+            order.add(option);
+        }
+        Collections.shuffle(order, random);
+
+        int size = 1 + random.nextInt(Math.max(1, maxChanges));
+        int[] set = new int[0];
+        BitSet blocked = new BitSet(options.size());
+        for (int option : order){
+            if (set.length >= size){
+                break;
+            }
+            if (!blocked.get(option)){
+                set = with(set, -1, option);
+                blocked = options.getBlocked(blocked, option);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Evaluates the sets that were not evaluated yet in parallel, at most the remaining budget of them.
+     *
+     * @return the value of every set, negative infinity for sets beyond the budget
+     */
+    private double[] evaluate(List<int[]> sets) throws MiningException {
+        List<int[]> pending = new ArrayList<>();
+        for (int[] set : sets){
+            if (!evaluated.containsKey(getKey(set)) && evaluated.size() + pending.size() < budget){
+                pending.add(set);
+            }
+        }
+
+        List<Double> values = MiningPool.map(pending, set -> evaluator.evaluate(options.toChanges(set, set.length)));
+        for (int i = 0; i < pending.size(); i++){
+            evaluated.put(getKey(pending.get(i)), values.get(i));
+        }
+
+        double[] result = new double[sets.size()];
+        for (int i = 0; i < result.length; i++){
+            result[i] = evaluated.getOrDefault(getKey(sets.get(i)), Double.NEGATIVE_INFINITY);
+        }
+        return result;
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * @param options the change options
+     * @param gains the estimated psi gain of every option, only used to order them reproducibly
+     * @param maxChanges maximal number of changes in a set
+     * @param budget maximal number of distinct sets evaluated
+     * @param batchSize number of neighbours evaluated in parallel in a step
+     * @param seed seeds the sampling of neighbours and restarts
+     * @param evaluator computes the psi of candidates, called from several threads
+     */
+    public LocalSearch(Collection<Change> options, Map<Change, Double> gains, int maxChanges, int budget,
+                       int batchSize, long seed, ICandidateEvaluator evaluator){
+        this.options = new ChangeOptions(options, gains);
+        this.maxChanges = maxChanges;
+        this.budget = budget;
+        this.batchSize = Math.max(1, batchSize);
+        this.random = new Random(seed);
+        this.evaluator = evaluator;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Runs the search from the baseline, the best set found is the incumbent of the evaluator once it returns.
+     */
+    public void search() throws MiningException {
+        evaluated.clear();
+        restarts = 0;
+
+        int[] current = new int[0];
+        double value = evaluate(Collections.singletonList(current))[0];
+        int stale = 0;
+        int idleRestarts = 0;
+        while (evaluated.size() < budget && idleRestarts < MAX_IDLE_RESTARTS){
+            List<int[]> neighbours = getNeighbours(current);
+            Collections.shuffle(neighbours, random);
+            List<int[]> batch = new ArrayList<>();
+            for (int[] neighbour : neighbours){
+                if (batch.size() >= batchSize){
+                    break;
+                }
+                if (!evaluated.containsKey(getKey(neighbour))){
+                    batch.add(neighbour);
+                }
+            }
+
+            int before = evaluated.size();
+            double[] values = evaluate(batch);
+            int best = -1;
+            for (int i = 0; i < values.length; i++){
+                if (values[i] > value && (best < 0 || values[i] > values[best])){
+                    best = i;
+                }
+            }
+
+            if (best >= 0){
+                current = batch.get(best);
+                value = values[best];
+                stale = 0;
+                idleRestarts = 0;
+            }
+            else if (batch.isEmpty() || ++stale >= PATIENCE){
+                //a local optimum, or all of its sampled neighbours were seen already
+                current = getRandomSet();
+                value = evaluate(Collections.singletonList(current))[0];
+                stale = 0;
+                restarts++;
+                idleRestarts = evaluated.size() == before ? idleRestarts + 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct sets evaluated
+     */
+    public int getEvaluated() {
+        return evaluated.size();
+    }
+
+    /**
+     * @return the number of restarts from a random set
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+
+    //endregion
+}
@@ -0,0 +1,216 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
+import org.eduprom.utils.PersistentProcessTree;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Task;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Online ridge regression of the psi of a candidate on cheap features of it.
+ *
+ * The features are the size and the operator mix of the modified tree, the number of changes, their noise
+ * thresholds, the share of the log they filter out and their estimated per-partition psi gains. The model is
+ * refitted on every exact psi it observes. Before observing a psi it predicts it, so the reported mean
+ * absolute error is measured on candidates the model had not seen yet.
+ *
+ * Candidates that are pruned before their psi is exact are observed with their partial psi, an upper bound of
+ * their psi, so the model does not only learn from the candidates that beat the best model. The bounds still
+ * bias the predictions upwards, which makes the surrogate skip fewer candidates, not more.
+ */
+public class PsiSurrogate {
+
+    private static final int FEATURES = 13;
+    private static final double RIDGE = 1e-3;
+
+    //region private members
+
+    private final Map<Change, Double> gains;
+    //normal equations of the ridge regression
+    private final double[][] gram = new double[FEATURES][FEATURES];
+    private final double[] moments = new double[FEATURES];
+    private volatile double[] weights;
+    private int observations;
+    private int predicted;
+    private double absoluteError;
+
+    //endregion
+
+    //region private methods
+
+    private double[] getFeatures(TreeChanges change){
+        double[] features = new double[FEATURES];
+        features[0] = 1;
+
+        int nodes = 0;
+        Deque<PersistentProcessTree.PersistentNode> toVisit = new ArrayDeque<>();
+        toVisit.push(change.getTree().getRoot());
+        while (!toVisit.isEmpty()){
+            PersistentProcessTree.PersistentNode node = toVisit.pop();
+            nodes++;
+            Class<?> type = node.getType();
+            if (Block.XorLoop.class.isAssignableFrom(type)) features[2]++;
+            else if (Block.Seq.class.isAssignableFrom(type)) features[3]++;
+            else if (Block.Xor.class.isAssignableFrom(type)) features[4]++;
+            else if (Block.And.class.isAssignableFrom(type)) features[5]++;
+            else if (Task.Automatic.class.isAssignableFrom(type)) features[6]++;
+            node.getChildren().forEach(toVisit::push);
+        }
+        features[1] = Math.log1p(nodes);
+        for (int i = 2; i <= 6; i++){
+            features[i] /= nodes;
+        }
+
+        features[7] = change.getNumberOfChanges();
+        double minGain = 0;
+        for (Change c : change.getChanges().getChanges()){
+            double threshold = c.getMiner().getNoiseThreshold();
+            double gain = gains.getOrDefault(c, 0.0);
+            features[8] += threshold / change.getNumberOfChanges();
+            features[9] = Math.max(features[9], threshold);
+            features[11] += gain;
+            minGain = Math.min(minGain, gain);
+        }
+        features[12] = minGain;
+        int bits = change.getBits();
+        features[10] = bits > 0 ? change.getBitsRemoved() / (double) bits : 0;
+        return features;
+    }
+
+    private static double dot(double[] weights, double[] features){
+        double value = 0;
+        for (int i = 0; i < FEATURES; i++){
+            value += weights[i] * features[i];
+        }
+        return value;
+    }
+
+    /**
+     * Solves the regularized normal equations by gaussian elimination with partial pivoting.
+     */
+    private double[] solve(){
+        double[][] a = new double[FEATURES][FEATURES + 1];
+        for (int i = 0; i < FEATURES; i++){
+            System.arraycopy(gram[i], 0, a[i], 0, FEATURES);
+            //the intercept is not regularized
+            a[i][i] += i == 0 ? 0 : RIDGE * Math.max(1, observations);
+            a[i][FEATURES] = moments[i];
+        }
+
+        for (int column = 0; column < FEATURES; column++){
+            int pivot = column;
+            for (int row = column + 1; row < FEATURES; row++){
+                if (Math.abs(a[row][column]) > Math.abs(a[pivot][column])){
+                    pivot = row;
+                }
+            }
+            double[] swap = a[column];
+            a[column] = a[pivot];
+            a[pivot] = swap;
+            if (Math.abs(a[column][column]) < 1e-12){
+                continue;
+            }
+
+            for (int row = column + 1; row < FEATURES; row++){
+                double factor = a[row][column] / a[column][column];
+                for (int k = column; k <= FEATURES; k++){
+                    a[row][k] -= factor * a[column][k];
+                }
+            }
+        }
+
+        double[] solution = new double[FEATURES];
+        for (int row = FEATURES - 1; row >= 0; row--){
+            if (Math.abs(a[row][row]) < 1e-12){
+                continue;
+            }
+            double value = a[row][FEATURES];
+            for (int k = row + 1; k < FEATURES; k++){
+                value -= a[row][k] * solution[k];
+            }
+            solution[row] = value / a[row][row];
+        }
+        return solution;
+    }
+
+    private void fit(double[] features, double psi){
+        for (int i = 0; i < FEATURES; i++){
+            for (int j = 0; j < FEATURES; j++){
+                gram[i][j] += features[i] * features[j];
+            }
+            moments[i] += features[i] * psi;
+        }
+        observations++;
+        weights = solve();
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * @param gains the estimated psi gain of every change, see
+     *              {@link org.eduprom.miners.adaptiveNoise.conformance.PartitionConformanceCache#estimateGain}
+     */
+    public PsiSurrogate(Map<Change, Double> gains){
+        this.gains = gains;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Refits the model with the exact psi of a candidate.
+     */
+    public void observe(TreeChanges change, double psi){
+        double[] features = getFeatures(change);
+        synchronized (this){
+            double[] current = weights;
+            if (current != null){
+                absoluteError += Math.abs(dot(current, features) - psi);
+                predicted++;
+            }
+            fit(features, psi);
+        }
+    }
+
+    /**
+     * Refits the model with the partial psi of a pruned candidate, it does not count for the mean absolute error.
+     */
+    public void observeBound(TreeChanges change, double bound){
+        double[] features = getFeatures(change);
+        synchronized (this){
+            fit(features, bound);
+        }
+    }
+
+    /**
+     * @return the predicted psi of the candidate, NaN before the first observation
+     */
+    public double predict(TreeChanges change){
+        double[] current = weights;
+        if (current == null){
+            return Double.NaN;
+        }
+        return dot(current, getFeatures(change));
+    }
+
+    public synchronized int getObservations() {
+        return observations;
+    }
+
+    /**
+     * @return the mean absolute error of the predictions made before the observed psi was known, NaN if
+     * there were none
+     */
+    public synchronized double getMeanAbsoluteError() {
+        return predicted > 0 ? absoluteError / predicted : Double.NaN;
+    }
+
+    //endregion
+}
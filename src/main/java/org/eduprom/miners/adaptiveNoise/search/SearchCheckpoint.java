@@ -0,0 +1,462 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.factory.XFactory;
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.deckfour.xes.model.XEvent;
+import org.deckfour.xes.model.XLog;
+import org.deckfour.xes.model.XTrace;
+import org.eduprom.benchmarks.configuration.Weights;
+import org.eduprom.miners.adaptiveNoise.IntermediateMiners.MiningResult;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
+import org.eduprom.miners.adaptiveNoise.conformance.IConformanceContext;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.miners.adaptiveNoise.filters.FilterResult;
+import org.eduprom.partitioning.Partitioning;
+import org.eduprom.utils.ProcessTreeCodec;
+import org.eduprom.utils.ProcessTreeKey;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only checkpoint of an adaptive noise search: the partitionings (tree and sublogs), the mined option
+ * trees, the conformance of every evaluated candidate and the incumbent.
+ *
+ * Records are framed by a tag and a length, so a record cut by a crash is dropped when the checkpoint is
+ * resumed. Writes are buffered and flushed at most once per flush interval, so checkpointing stays cheap
+ * compared with the search. A checkpoint only applies to the run it was written for: its header holds a
+ * fingerprint of the logs and configuration, a checkpoint with another fingerprint is discarded.
+ * Sublogs keep the activity of every event only, which is all the miners and the alignments look at.
+ */
+public class SearchCheckpoint implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(SearchCheckpoint.class.getName());
+    private static final int MAGIC = 0x41434b31;
+
+    private static final byte PARTITIONING = 1;
+    private static final byte OPTION = 2;
+    private static final byte CANDIDATE = 3;
+    private static final byte INCUMBENT = 4;
+
+    //region private members
+
+    private final File file;
+    private final long flushInterval;
+    private final Map<Float, byte[]> partitionings = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> options = new ConcurrentHashMap<>();
+    private final Map<String, double[]> candidates = new ConcurrentHashMap<>();
+    private volatile String incumbent;
+    private DataOutputStream output;
+    private long lastFlush;
+
+    //endregion
+
+    //region private methods
+
+    private static String getOptionKey(int partition, float noiseThreshold){
+        return String.format("%d:%s", partition, Float.toString(noiseThreshold));
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7f) != 0){
+            output.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7){
+            byte b = input.readByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0){
+                return value;
+            }
+        }
+    }
+
+    private static void writeLog(DataOutputStream output, XLog log) throws IOException {
+        Map<String, Integer> activities = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        for (XTrace trace : log){
+            for (XEvent event : trace){
+                String name = XConceptExtension.instance().extractName(event);
+                if (!activities.containsKey(name)){
+                    activities.put(name, names.size());
+                    names.add(name);
+                }
+            }
+        }
+
+        writeVarInt(output, names.size());
+        for (String name : names){
+            output.writeUTF(name);
+        }
+        writeVarInt(output, log.size());
+        for (XTrace trace : log){
+            writeVarInt(output, trace.size());
+            for (XEvent event : trace){
+                writeVarInt(output, activities.get(XConceptExtension.instance().extractName(event)));
+            }
+        }
+    }
+
+    private static XLog readLog(DataInputStream input) throws IOException {
+        XFactory factory = XFactoryRegistry.instance().currentDefault();
+        String[] names = new String[readVarInt(input)];
+        for (int i = 0; i < names.length; i++){
+            names[i] = input.readUTF();
+        }
+
+        XLog log = factory.createLog();
+        int traces = readVarInt(input);
+        for (int i = 0; i < traces; i++){
+            XTrace trace = factory.createTrace();
+            int events = readVarInt(input);
+            for (int j = 0; j < events; j++){
+                XEvent event = factory.createEvent();
+                XConceptExtension.instance().assignName(event, names[readVarInt(input)]);
+                trace.add(event);
+            }
+            log.add(trace);
+        }
+        return log;
+    }
+
+    /**
+     * Loads the records of the file.
+     *
+     * @return the length of the valid prefix of the file, 0 if it has another fingerprint
+     */
+    private long load(String fingerprint) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            long valid;
+            try {
+                if (input.readInt() != MAGIC){
+                    throw new IOException(String.format("%s is not a search checkpoint", file));
+                }
+                String stored = input.readUTF();
+                if (!stored.equals(fingerprint)){
+                    logger.warning(String.format("checkpoint %s belongs to another run, starting over", file));
+                    return 0;
+                }
+                valid = 4 + 2 + stored.getBytes(StandardCharsets.UTF_8).length;
+            }
+            catch (EOFException e){
+                return 0;
+            }
+
+            while (true){
+                byte tag;
+                byte[] payload;
+                try {
+                    tag = input.readByte();
+                    payload = new byte[input.readInt()];
+                    input.readFully(payload);
+                }
+                catch (EOFException e){
+                    //the last record may be partial when a previous run was killed while writing
+                    return valid;
+                }
+
+                apply(tag, payload);
+                valid += 1 + 4 + payload.length;
+            }
+        }
+    }
+
+    private void apply(byte tag, byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        switch (tag){
+            case PARTITIONING:
+                partitionings.put(input.readFloat(), payload);
+                break;
+            case OPTION:
+                options.put(getOptionKey(input.readInt(), input.readFloat()), payload);
+                break;
+            case CANDIDATE:
+                String key = input.readUTF();
+                candidates.put(key, new double[] { input.readDouble(), input.readDouble(), input.readDouble() });
+                break;
+            case INCUMBENT:
+                incumbent = input.readUTF();
+                break;
+            default:
+                throw new IOException(String.format("unknown checkpoint record: %d", tag));
+        }
+    }
+
+    private synchronized void write(byte tag, byte[] payload) throws IOException {
+        output.writeByte(tag);
+        output.writeInt(payload.length);
+        output.write(payload);
+
+        long now = System.currentTimeMillis();
+        if (now - lastFlush >= flushInterval){
+            output.flush();
+            lastFlush = now;
+        }
+    }
+
+    private void write(byte tag, ByteArrayOutputStream bytes){
+        try {
+            write(tag, bytes.toByteArray());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to write to checkpoint %s", file), e);
+        }
+    }
+
+    //endregion
+
+    //region constructors
+
+    private SearchCheckpoint(File file, String fingerprint, boolean resume, long flushInterval) throws IOException {
+        this.file = file;
+        this.flushInterval = flushInterval;
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.exists()){
+            directory.mkdirs();
+        }
+
+        long valid = resume && file.isFile() ? load(fingerprint) : 0;
+        if (valid > 0){
+            //drop a partial last record before appending
+            try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+                access.setLength(valid);
+            }
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        }
+        else {
+            this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+            output.writeInt(MAGIC);
+            output.writeUTF(fingerprint);
+            output.flush();
+        }
+        this.lastFlush = System.currentTimeMillis();
+
+        logger.info(String.format("checkpoint %s opened with %d partitionings, %d options, %d candidates",
+                file, partitionings.size(), options.size(), candidates.size()));
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * @param path the checkpoint file
+     * @param fingerprint identifies the run, see the class comment
+     * @param resume true to keep the records of a previous run with the same fingerprint, false to start over
+     * @param flushInterval minimal time in milliseconds between two flushes, 0 flushes every record
+     */
+    public static SearchCheckpoint open(String path, String fingerprint, boolean resume, long flushInterval) throws IOException {
+        return new SearchCheckpoint(new File(path), fingerprint, resume, flushInterval);
+    }
+
+    /**
+     * @return the checkpointed partitioning of the given noise threshold, or null if there is none
+     */
+    public Partitioning getPartitioning(float noiseThreshold, IConformanceContext conformanceContext) {
+        byte[] payload = partitionings.get(noiseThreshold);
+        if (payload == null){
+            return null;
+        }
+
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+            input.readFloat();
+            List<Node> nodes = ProcessTreeCodec.read(input);
+            int partitions = readVarInt(input);
+            List<Node> partitionNodes = new ArrayList<>(partitions);
+            List<XLog> logs = new ArrayList<>(partitions);
+            XLog splitLog = null;
+            for (int i = 0; i < partitions; i++){
+                int index = readVarInt(input);
+                partitionNodes.add(nodes.get(index));
+                logs.add(readLog(input));
+                if (index == 0){
+                    //the log of the root partition is the log that was split
+                    splitLog = logs.get(i);
+                }
+            }
+
+            Partitioning partitioning = new Partitioning(conformanceContext, splitLog);
+            partitioning.setProcessTree(nodes.get(0).getProcessTree());
+            //in the original order, which defines the sequential ids of the partitions
+            for (int i = 0; i < partitions; i++){
+                partitioning.add(partitionNodes.get(i), logs.get(i));
+            }
+            return partitioning;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to restore partitioning from checkpoint %s", file), e);
+            return null;
+        }
+    }
+
+    public void putPartitioning(float noiseThreshold, Partitioning partitioning) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeFloat(noiseThreshold);
+            List<Node> nodes = ProcessTreeCodec.write(output, partitioning.getProcessTree());
+            Map<Node, Integer> indices = new IdentityHashMap<>();
+            for (int i = 0; i < nodes.size(); i++){
+                indices.put(nodes.get(i), i);
+            }
+
+            List<Partitioning.PartitionInfo> partitions = new ArrayList<>(partitioning.getPartitions().values());
+            partitions.sort(Comparator.comparingInt(Partitioning.PartitionInfo::getSequentialId));
+            writeVarInt(output, partitions.size());
+            for (Partitioning.PartitionInfo partitionInfo : partitions){
+                Integer index = indices.get(partitionInfo.getNode());
+                if (index == null){
+                    throw new IOException(String.format("partition T_%d is not part of the partitioning tree", partitionInfo.getSequentialId()));
+                }
+                writeVarInt(output, index);
+                writeLog(output, partitionInfo.getLog());
+            }
+            output.flush();
+
+            write(PARTITIONING, bytes);
+            partitionings.put(noiseThreshold, bytes.toByteArray());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to checkpoint partitioning to %s", file), e);
+        }
+    }
+
+    /**
+     * @return the checkpointed tree of the given option with the size of its filtering, the filtered log is the
+     * log of the option, or null if it was not mined yet
+     */
+    public MiningResult getOption(Change change) {
+        byte[] payload = options.get(getOptionKey(change.getPartitionInfo().getSequentialId(), change.getMiner().getNoiseThreshold()));
+        if (payload == null){
+            return null;
+        }
+
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+            input.readInt();
+            input.readFloat();
+            ProcessTree tree = ProcessTreeCodec.readTree(input);
+            int bitsRemoved = input.readInt();
+            int bits = input.readInt();
+            return new MiningResult(tree, new FilterResult(change.getLog(), bitsRemoved, bits));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to restore option from checkpoint %s", file), e);
+            return null;
+        }
+    }
+
+    public void putOption(Change change, MiningResult result) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(change.getPartitionInfo().getSequentialId());
+            output.writeFloat(change.getMiner().getNoiseThreshold());
+            ProcessTreeCodec.write(output, result.getProcessTree());
+            output.writeInt(result.getFilterResult().getBitsRemoved());
+            output.writeInt(result.getFilterResult().getBits());
+            output.flush();
+            write(OPTION, bytes);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to checkpoint option to %s", file), e);
+        }
+    }
+
+    /**
+     * @return the checkpointed conformance of the candidate with the given key weighted by the given weights,
+     * or null if it was not evaluated yet
+     */
+    public ConformanceInfo getConformance(ProcessTreeKey key, Weights weights) {
+        double[] values = candidates.get(key.toString());
+        if (values == null){
+            return null;
+        }
+
+        ConformanceInfo info = new ConformanceInfo(weights);
+        info.setFitness(values[0]);
+        info.setPrecision(values[1]);
+        info.setGeneralization(values[2]);
+        return info;
+    }
+
+    public void putConformance(ProcessTreeKey key, ConformanceInfo info) {
+        if (!info.assigned() || candidates.containsKey(key.toString())){
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeUTF(key.toString());
+            output.writeDouble(info.getFitness());
+            output.writeDouble(info.getPrecision());
+            output.writeDouble(info.getGeneralization());
+            output.flush();
+            write(CANDIDATE, bytes);
+            candidates.put(key.toString(), new double[] { info.getFitness(), info.getPrecision(), info.getGeneralization() });
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to checkpoint candidate to %s", file), e);
+        }
+    }
+
+    /**
+     * @return the key of the checkpointed incumbent, or null if there is none
+     */
+    public String getIncumbent() {
+        return incumbent;
+    }
+
+    public void putIncumbent(ProcessTreeKey key) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeUTF(key.toString());
+            output.flush();
+            write(INCUMBENT, bytes);
+            incumbent = key.toString();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("failed to checkpoint incumbent to %s", file), e);
+        }
+    }
+
+    /**
+     * Writes the pending records.
+     */
+    public synchronized void flush() throws IOException {
+        output.flush();
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+
+    //endregion
+}
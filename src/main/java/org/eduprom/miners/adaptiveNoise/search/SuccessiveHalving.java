@@ -0,0 +1,135 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.exceptions.MiningException;
+import org.eduprom.utils.MiningPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Successive halving over a set of candidates.
+ *
+ * All candidates are scored on a small sample, the worse half is dropped and the survivors are scored again on
+ * a sample twice as large, until one candidate remains or the sample reaches the full size. A candidate of the
+ * worse half is only dropped if its score is below the worst kept score by more than the confidence bound of
+ * the sample, a Hoeffding bound on the error of a score in the given range, so close candidates survive
+ * until larger samples tell them apart.
+ *
+ * @param <T> the type of the candidates
+ */
+public class SuccessiveHalving<T> {
+
+    /**
+     * Scores a candidate on a sample, called from several threads.
+     */
+    public interface IScorer<T> {
+        /**
+         * @param sampleSize the number of traces of the sample
+         * @return the score of the candidate, higher is better, null if the run was cancelled
+         */
+        Double score(T candidate, int sampleSize) throws MiningException;
+    }
+
+    //region private members
+
+    private final int initialSampleSize;
+    private final int fullSize;
+    private final double confidence;
+    private final double range;
+
+    private int rounds;
+    private int scored;
+
+    //endregion
+
+    //region private methods
+
+    private double getBound(int sampleSize){
+        return range * Math.sqrt(Math.log(1 / (1 - confidence)) / (2.0 * sampleSize));
+    }
+
+    private List<T> halve(List<T> candidates, List<Double> scores, int sampleSize){
+        List<Integer> order = IntStream.range(0, candidates.size()).boxed()
+                .sorted((x, y) -> Double.compare(scores.get(y), scores.get(x))).collect(Collectors.toList());
+        int keep = (candidates.size() + 1) / 2;
+        boolean[] better = new boolean[candidates.size()];
+        for (int i = 0; i < keep; i++){
+            better[order.get(i)] = true;
+        }
+        double cutoff = scores.get(order.get(keep - 1));
+        double bound = getBound(sampleSize);
+
+        //the survivors keep the order of the candidates
+        List<T> survivors = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++){
+            if (better[i] || scores.get(i) + bound >= cutoff){
+                survivors.add(candidates.get(i));
+            }
+        }
+        return survivors;
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * @param initialSampleSize number of traces of the first sample
+     * @param fullSize number of traces of the full log, the halving stops once a sample would reach it
+     * @param confidence confidence in [0, 1) that a dropped candidate is worse than the kept ones, 0 always
+     *                   drops the worse half
+     * @param range the difference between the largest and the smallest possible score
+     */
+    public SuccessiveHalving(int initialSampleSize, int fullSize, double confidence, double range){
+        this.initialSampleSize = Math.max(1, initialSampleSize);
+        this.fullSize = fullSize;
+        this.confidence = Math.max(0, Math.min(confidence, 0.999));
+        this.range = range;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Scores the candidates of a round in parallel on the shared pool.
+     *
+     * @return the surviving candidates in their original order, all candidates that were left if the run was
+     * cancelled
+     */
+    public List<T> select(List<T> candidates, IScorer<T> scorer) throws MiningException {
+        rounds = 0;
+        scored = 0;
+        List<T> survivors = new ArrayList<>(candidates);
+        for (int sampleSize = initialSampleSize; survivors.size() > 1 && sampleSize < fullSize; sampleSize *= 2){
+            int size = sampleSize;
+            List<Double> scores = MiningPool.map(survivors, candidate -> scorer.score(candidate, size));
+            if (scores.contains(null)){
+                break;
+            }
+
+            rounds++;
+            scored += survivors.size();
+            survivors = halve(survivors, scores, sampleSize);
+        }
+        return survivors;
+    }
+
+    /**
+     * @return the number of samples the last selection scored candidates on
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * @return the number of scores computed by the last selection
+     */
+    public int getScored() {
+        return scored;
+    }
+
+    //endregion
+}
@@ -7,6 +7,7 @@ import org.eduprom.miners.AbstractPetrinetMiner;
 import org.eduprom.miners.synthesis.entities.ProcessTreeCuts;
 import org.deckfour.xes.classification.XEventNameClassifier;
 import org.deckfour.xes.model.XLog;
+import org.eduprom.utils.MiningPool;
 import org.eduprom.utils.PetrinetHelper;
 import org.processmining.framework.packages.PackageManager;
 import org.processmining.plugins.InductiveMiner.conversion.ReduceTree;
@@ -33,26 +34,37 @@ import org.processmining.processtree.impl.AbstractTask;
 import static org.processmining.ptconversions.pn.ProcessTree2Petrinet.PetrinetWithMarkings;
 
 import java.util.Iterator;
+import java.util.List;
 
 
 public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsProcessTreeMiner {
 
     private MiningParametersIM _parameters = new MiningParametersIM();
 
-    protected static PackageManager.Canceller _canceller = new PackageManager.Canceller() {
+    private static final int DEFAULT_FORK_MIN_TRACES = 50;
 
-        @Override
-        public boolean isCancelled() {
-            // This for passing the canceller to ProM interface
-            // We don't cancel since we do not work interactively
-            return false;
-        }
-    };
+    //sublogs with fewer traces are mined by the thread of their parent
+    private int forkMinTraces = DEFAULT_FORK_MIN_TRACES;
+
+    //per instance, polls the canceller set on this miner, concurrent runs of different miners do not share it
+    protected final PackageManager.Canceller _canceller = () -> getCanceller().isCancelled();
 
     public InductiveCutMiner(String filename) throws LogFileNotFoundException {
         super(filename);
     }
 
+    public int getForkMinTraces() {
+        return forkMinTraces;
+    }
+
+    /**
+     * @param forkMinTraces minimal number of traces of a sublog for it to be mined as a separate task, see
+     *                      {@link org.eduprom.miners.adaptiveNoise.configuration.AdaptiveNoiseConfiguration#getForkMinTraces()}
+     */
+    public void setForkMinTraces(int forkMinTraces) {
+        this.forkMinTraces = forkMinTraces;
+    }
+
     @Override
     protected PetrinetWithMarkings minePetrinet() throws MiningException {
         logger.info("Started mining a petri nets using inductive cut miner");
@@ -80,7 +92,7 @@ public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsPro
         ProcessTree tree = res.processTree;
 
         MinerState minerState = new MinerState(parameters, _canceller);
-        Node root = mineNode(log, res, minerState);
+        Node root = mineNode(log, res, minerState, forkMinTraces);
 
         if (_canceller.isCancelled()) {
             minerState.shutdownThreadPools();
@@ -116,7 +128,7 @@ public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsPro
         return res;
     }
 
-    public static Node mineNode(IMLog log, ProcessTreeCuts ptCuts, MinerState minerState) {
+    public static Node mineNode(IMLog log, ProcessTreeCuts ptCuts, MinerState minerState, int forkMinTraces) {
         ProcessTree tree = ptCuts.processTree;
         //construct basic information about log
         IMLogInfo logInfo = minerState.parameters.getLog2LogInfo().createLogInfo(log);
@@ -169,37 +181,27 @@ public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsPro
             }
             addNode(tree, newNode);
 
-            //recurse
-            if (cut.getOperator() != Cut.Operator.loop) {
-                for (IMLog sublog : splitResult.sublogs) {
-                    Node child = mineNode(sublog, ptCuts, minerState);
-
-                    if (minerState.isCancelled()) {
-                        return null;
-                    }
+            //recurse, the sibling sublogs are independent
+            List<Node> children = mineChildren(splitResult.sublogs, ptCuts, minerState, forkMinTraces);
+            if (children == null) {
+                return null;
+            }
 
+            if (cut.getOperator() != Cut.Operator.loop) {
+                for (Node child : children) {
                     addChild(newNode, child, minerState);
                 }
             } else {
                 //loop needs special treatment:
                 //ProcessTree requires a ternary loop
-                Iterator<IMLog> it = splitResult.sublogs.iterator();
+                Iterator<Node> it = children.iterator();
 
-                //mine body
-                IMLog firstSublog = it.next();
-                {
-                    Node firstChild = mineNode(firstSublog, ptCuts, minerState);
+                //body
+                addChild(newNode, it.next(), minerState);
 
-                    if (minerState.isCancelled()) {
-                        return null;
-                    }
-
-                    addChild(newNode, firstChild, minerState);
-                }
-
-                //mine redo parts by, if necessary, putting them under an xor
+                //redo parts by, if necessary, putting them under an xor
                 Block redoXor;
-                if (splitResult.sublogs.size() > 2) {
+                if (children.size() > 2) {
                     redoXor = new AbstractBlock.Xor("");
                     addNode(tree, redoXor);
                     addChild(newNode, redoXor, minerState);
@@ -207,14 +209,7 @@ public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsPro
                     redoXor = newNode;
                 }
                 while (it.hasNext()) {
-                    IMLog sublog = it.next();
-                    Node child = mineNode(sublog, ptCuts, minerState);
-
-                    if (minerState.isCancelled()) {
-                        return null;
-                    }
-
-                    addChild(redoXor, child, minerState);
+                    addChild(redoXor, it.next(), minerState);
                 }
 
                 //add tau as third child
@@ -241,6 +236,25 @@ public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsPro
         }
     }
 
+    /**
+     * Mines the sublogs of a cut, sublogs of at least {@code forkMinTraces} traces as separate tasks of the
+     * shared pool and the others in the current thread.
+     *
+     * @return the children in the order of the sublogs, null if the run was cancelled
+     */
+    private static List<Node> mineChildren(List<IMLog> sublogs, ProcessTreeCuts ptCuts, MinerState minerState, int forkMinTraces) {
+        List<Node> children;
+        try {
+            children = MiningPool.fork(sublogs,
+                    sublog -> sublogs.size() > 1 && sublog.size() >= forkMinTraces,
+                    sublog -> mineNode(sublog, ptCuts, minerState, forkMinTraces));
+        } catch (MiningException e) {
+            //mineNode does not throw checked exceptions, this is a failure of the inductive miner
+            throw new IllegalStateException(e);
+        }
+        return minerState.isCancelled() ? null : children;
+    }
+
     private static Node postProcess(ProcessTreeCuts ptCuts, Node newNode, IMLog log, IMLogInfo logInfo, MinerState minerState) {
         for (PostProcessor processor : minerState.parameters.getPostProcessors()) {
             newNode = processor.postProcess(newNode, log, logInfo, minerState);
@@ -333,8 +347,10 @@ public class InductiveCutMiner extends AbstractPetrinetMiner implements ICutsPro
             return null;
         }
 
-        //merge the discarded events of this log splitting into the global discarded events list
-        minerState.discardedEvents.addAll(result.discardedEvents);
+        //merge the discarded events of this log splitting into the global discarded events list, siblings split concurrently
+        synchronized (minerState.discardedEvents) {
+            minerState.discardedEvents.addAll(result.discardedEvents);
+        }
 
         return result;
     }
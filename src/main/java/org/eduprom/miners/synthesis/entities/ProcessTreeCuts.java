@@ -1,21 +1,23 @@
 package org.eduprom.miners.synthesis.entities;
 
 import org.deckfour.xes.model.XLog;
+import org.eduprom.utils.ConcurrentProcessTree;
 import org.processmining.processtree.ProcessTree;
-import org.processmining.processtree.impl.ProcessTreeImpl;
 
-import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ProcessTreeCuts
 {
     public ProcessTree processTree;
 
-    public HashMap<UUID, XLog> logs;
+    //sibling subtrees are mined concurrently
+    public Map<UUID, XLog> logs;
 
     public ProcessTreeCuts()
     {
-        processTree = new ProcessTreeImpl();
-        logs = new HashMap<UUID, XLog>();
+        processTree = new ConcurrentProcessTree();
+        logs = new ConcurrentHashMap<UUID, XLog>();
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package org.eduprom.partitioning;
+
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Pre-order numbering of the nodes of a partitioning, built once by an iterative walk.
+ *
+ * Every node gets the interval of the pre-order numbers of its subtree, so whether a node lies in the subtree
+ * of another is an interval containment and the subtree of a node is a range of the pre-order array.
+ */
+class PartitionIndex {
+
+    //region private members
+
+    private final Map<UUID, Integer> first = new HashMap<>();
+    private final Map<UUID, Integer> last = new HashMap<>();
+    private final List<UUID> preOrder = new ArrayList<>();
+
+    //endregion
+
+    //region private methods
+
+    private void walk(Node root){
+        //a node is pushed twice, the second visit closes its interval once its subtree is numbered
+        Deque<Node> toVisit = new ArrayDeque<>();
+        Deque<Boolean> closing = new ArrayDeque<>();
+        toVisit.push(root);
+        closing.push(false);
+        while (!toVisit.isEmpty()){
+            Node node = toVisit.pop();
+            if (closing.pop()){
+                last.put(node.getID(), preOrder.size() - 1);
+                continue;
+            }
+            if (first.containsKey(node.getID())){
+                continue;
+            }
+
+            first.put(node.getID(), preOrder.size());
+            preOrder.add(node.getID());
+            toVisit.push(node);
+            closing.push(true);
+            if (node instanceof Block){
+                List<Node> children = ((Block) node).getChildren();
+                for (int i = children.size() - 1; i >= 0; i--){
+                    toVisit.push(children.get(i));
+                    closing.push(false);
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * @param root the root of the process tree, may be null
+     * @param nodes the nodes of the partitions, those outside of the tree are numbered as roots of their own,
+     *              so ancestors have to come before their descendants
+     */
+    PartitionIndex(Node root, Collection<Node> nodes){
+        if (root != null){
+            walk(root);
+        }
+        for (Node node : nodes){
+            walk(node);
+        }
+    }
+
+    //endregion
+
+    //region package methods
+
+    /**
+     * @return true if the node is the given ancestor or lies in its subtree
+     */
+    boolean isInSubtree(UUID node, UUID ancestor){
+        Integer position = first.get(node);
+        Integer start = first.get(ancestor);
+        return position != null && start != null && start <= position && position <= last.get(ancestor);
+    }
+
+    /**
+     * @return true if one of the nodes lies in the subtree of the other
+     */
+    boolean isRelated(UUID node, UUID other){
+        return isInSubtree(node, other) || isInSubtree(other, node);
+    }
+
+    /**
+     * @return the ids of the subtree of the node, itself included, in pre-order
+     */
+    Set<UUID> getSubtree(UUID node){
+        Integer start = first.get(node);
+        if (start == null){
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(preOrder.subList(start, last.get(node) + 1)));
+    }
+
+    //endregion
+}
@@ -12,15 +12,11 @@ import org.processmining.processtree.Block;
 import org.processmining.processtree.Edge;
 import org.processmining.processtree.Node;
 import org.processmining.processtree.ProcessTree;
-import org.processmining.processtree.impl.AbstractBlock;
 import org.processmining.processtree.impl.ProcessTreeImpl;
 
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static java.util.stream.Stream.concat;
 
 public class Partitioning
 {
@@ -32,22 +28,14 @@ public class Partitioning
         private MiningResult miningResult;
         private ConformanceInfo conformanceInfo;
         private IConformanceContext conformanceContext;
-        private Set<UUID> resursiveChildern;
-
-        private Stream<Node> getAllRecursiveNodes(Node node){
-            if (node instanceof AbstractBlock){
-                Stream rec = ((AbstractBlock)node).getChildren().stream().flatMap(this::getAllRecursiveNodes);
-                return concat(rec, Stream.of(node));
-            }
-
-            return Stream.of(node);
-        }
+        private final int sequentialId;
+        private volatile Set<UUID> resursiveChildern;
 
         public PartitionInfo(XLog partitionLog, Node node, IConformanceContext conformanceContext){
             this.partitionLog = partitionLog;
             this.node = node;
             this.conformanceContext = conformanceContext;
-            this.resursiveChildern = getAllRecursiveNodes(this.node).map(x->x.getID()).collect(Collectors.toSet());
+            this.sequentialId = assignSequentialId(node.getID());
         }
 
         public boolean isRoot() {
@@ -97,16 +85,25 @@ public class Partitioning
             return getPartitionLog();
         }
 
+        /**
+         * @return true if the given partition is this one or lies in its subtree
+         */
         public boolean isChildOf(PartitionInfo partitionInfo){
-            return resursiveChildern.contains(partitionInfo.getId());
+            return getIndex().isInSubtree(partitionInfo.getId(), this.getId());
         }
 
         public boolean isRalated(PartitionInfo partitionInfo){
-            return this.isChildOf(partitionInfo) || partitionInfo.isChildOf(this);
+            return getIndex().isRelated(this.getId(), partitionInfo.getId());
         }
 
+        /**
+         * @return the ids of the nodes of the subtree of the partition, its own id included
+         */
         public Set<UUID> getChildren() {
-            return this.getAllRecursiveNodes(this.node).map(x->x.getID()).collect(Collectors.toSet());
+            if (resursiveChildern == null){
+                resursiveChildern = getIndex().getSubtree(this.getId());
+            }
+            return resursiveChildern;
         }
 
         public Node getNode(){
@@ -201,7 +198,7 @@ public class Partitioning
         }*/
 
         public int getSequentialId(){
-            return logIdentifiers.indexOf(this.getId());
+            return sequentialId;
         }
     }
 
@@ -209,8 +206,36 @@ public class Partitioning
     private  LogHelper _helper;
     private HashMap<UUID, PartitionInfo> logs;
     private List<UUID> logIdentifiers;
+    private Map<UUID, Integer> sequentialIds;
     private IConformanceContext conformanceContext;
     private XLog origianlLog;
+    //ancestry of the partitions, built on first use and dropped whenever the partitioning changes
+    private volatile PartitionIndex index;
+
+    private synchronized int assignSequentialId(UUID id){
+        return sequentialIds.computeIfAbsent(id, x -> {
+            logIdentifiers.add(x);
+            return logIdentifiers.size() - 1;
+        });
+    }
+
+    private PartitionIndex getIndex(){
+        PartitionIndex current = index;
+        if (current == null){
+            synchronized (this){
+                if (index == null){
+                    //partitions are added children first, so the reversed order puts ancestors first
+                    List<Node> nodes = new ArrayList<>();
+                    for (int i = logIdentifiers.size() - 1; i >= 0; i--){
+                        nodes.add(logs.get(logIdentifiers.get(i)).getNode());
+                    }
+                    index = new PartitionIndex(processTree.getRoot(), nodes);
+                }
+                current = index;
+            }
+        }
+        return current;
+    }
 
     public Partitioning(IConformanceContext conformanceContext, XLog log)
     {
@@ -219,6 +244,7 @@ public class Partitioning
         logs = new HashMap<>();
         this.conformanceContext = conformanceContext;
         logIdentifiers = new ArrayList<>();
+        sequentialIds = new HashMap<>();
         this.origianlLog = log;
     }
 
@@ -232,19 +258,25 @@ public class Partitioning
         return logs;
     }
 
-    public void add(Node node, XLog log){
+    public synchronized void add(Node node, XLog log){
         this.logs.put(node.getID(), new PartitionInfo(log, node, conformanceContext));
-        if (!logIdentifiers.contains(node.getID())){
-            logIdentifiers.add(node.getID());
-        }
+        index = null;
+    }
+
+    /**
+     * @return the partition with the given sequential id, see {@link PartitionInfo#getSequentialId()}
+     */
+    public PartitionInfo getPartition(int sequentialId){
+        return logs.get(logIdentifiers.get(sequentialId));
     }
 
     public ProcessTree getProcessTree() {
         return this.processTree;
     }
 
-    public void setProcessTree(ProcessTree processTree) {
+    public synchronized void setProcessTree(ProcessTree processTree) {
         this.processTree = processTree;
+        index = null;
     }
 
     public XLog getOrigianlLog(){
@@ -0,0 +1,23 @@
+package org.eduprom.utils;
+
+import org.processmining.processtree.Edge;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.impl.ProcessTreeImpl;
+
+/**
+ * Process tree whose nodes and edges can be added by several threads, for the fork-join recursion of the
+ * miners. The base case finders and fall throughs of the inductive miner add their nodes to the tree directly,
+ * so synchronizing the helpers of the miners alone is not enough.
+ */
+public class ConcurrentProcessTree extends ProcessTreeImpl {
+
+    @Override
+    public synchronized void addNode(Node node) {
+        super.addNode(node);
+    }
+
+    @Override
+    public synchronized void addEdge(Edge edge) {
+        super.addEdge(edge);
+    }
+}
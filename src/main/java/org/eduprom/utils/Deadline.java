@@ -0,0 +1,184 @@
+package org.eduprom.utils;
+
+import org.processmining.framework.packages.PackageManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall-clock and memory budget of a mining run.
+ *
+ * The deadline is a {@link PackageManager.Canceller}, so it can be handed to the inductive miner as is. It is
+ * cancelled once the time budget has passed, once the used heap exceeds the memory budget, or explicitly.
+ * Computations that cannot poll it (alignments) register a listener that is fired when it is cancelled.
+ * A budget of 0 means no limit, a deadline without any limit is never cancelled implicitly.
+ */
+public class Deadline implements PackageManager.Canceller, AutoCloseable {
+
+    private static final long MEMORY_POLL_MILLIS = 200;
+
+    /**
+     * Handle of a listener registered by {@link #onCancel(Runnable)}.
+     */
+    public interface Registration extends AutoCloseable {
+        /**
+         * Removes the listener.
+         */
+        @Override
+        void close();
+    }
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deadline-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //region private members
+
+    private final long start;
+    private final long timeBudget;
+    private final long memoryBudget;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledFuture<?> expiry;
+    private final ScheduledFuture<?> memoryCheck;
+    private volatile String reason;
+
+    //endregion
+
+    //region private methods
+
+    private static long getUsedMemory(){
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void cancel(String reason){
+        synchronized (this){
+            if (this.reason != null){
+                return;
+            }
+            this.reason = reason;
+        }
+
+        if (expiry != null){
+            expiry.cancel(false);
+        }
+        if (memoryCheck != null){
+            memoryCheck.cancel(false);
+        }
+        //a listener runs at most once, whoever removes it runs it
+        for (Runnable listener : listeners){
+            if (listeners.remove(listener)){
+                listener.run();
+            }
+        }
+    }
+
+    private boolean check(){
+        if (reason != null){
+            return true;
+        }
+
+        if (timeBudget > 0 && getElapsed() >= timeBudget){
+            cancel(String.format("time budget of %d ms exhausted", timeBudget));
+        }
+        else if (memoryBudget > 0 && getUsedMemory() > memoryBudget){
+            cancel(String.format("memory budget of %d MB exhausted", memoryBudget >> 20));
+        }
+        return reason != null;
+    }
+
+    //endregion
+
+    //region constructors
+
+    /**
+     * Starts the clock.
+     *
+     * @param timeBudget wall-clock budget in milliseconds, 0 for no limit
+     * @param memoryBudget used heap budget in bytes, 0 for no limit
+     */
+    public Deadline(long timeBudget, long memoryBudget){
+        this.start = System.currentTimeMillis();
+        this.timeBudget = timeBudget;
+        this.memoryBudget = memoryBudget;
+        this.expiry = timeBudget > 0 ? timer.schedule(this::check, timeBudget, TimeUnit.MILLISECONDS) : null;
+        this.memoryCheck = memoryBudget > 0
+                ? timer.scheduleWithFixedDelay(this::check, MEMORY_POLL_MILLIS, MEMORY_POLL_MILLIS, TimeUnit.MILLISECONDS)
+                : null;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * @return a deadline without any budget
+     */
+    public static Deadline none(){
+        return new Deadline(0, 0);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return check();
+    }
+
+    public void cancel(){
+        cancel("cancelled");
+    }
+
+    /**
+     * Registers a listener that is fired once when the deadline is cancelled, immediately if it already is.
+     *
+     * @return a handle that removes the listener when closed
+     */
+    public Registration onCancel(Runnable listener){
+        listeners.add(listener);
+        if (check() && listeners.remove(listener)){
+            listener.run();
+        }
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * @return why the deadline was cancelled, null while it is not
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    public long getElapsed(){
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * @return the remaining time in milliseconds, Long.MAX_VALUE without a time budget
+     */
+    public long getRemaining(){
+        if (timeBudget <= 0){
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, timeBudget - getElapsed());
+    }
+
+    /**
+     * Stops the background checks, the deadline is not cancelled.
+     */
+    @Override
+    public void close() {
+        if (expiry != null){
+            expiry.cancel(false);
+        }
+        if (memoryCheck != null){
+            memoryCheck.cancel(false);
+        }
+    }
+
+    //endregion
+}
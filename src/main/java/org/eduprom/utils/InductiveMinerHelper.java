@@ -0,0 +1,83 @@
+package org.eduprom.utils;
+
+import org.processmining.plugins.InductiveMiner.mining.IMLogInfo;
+import org.processmining.plugins.InductiveMiner.mining.MinerState;
+import org.processmining.plugins.InductiveMiner.mining.baseCases.BaseCaseFinder;
+import org.processmining.plugins.InductiveMiner.mining.cuts.Cut;
+import org.processmining.plugins.InductiveMiner.mining.cuts.CutFinder;
+import org.processmining.plugins.InductiveMiner.mining.fallthrough.FallThrough;
+import org.processmining.plugins.InductiveMiner.mining.logSplitter.LogSplitter;
+import org.processmining.plugins.InductiveMiner.mining.logs.IMLog;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+
+import java.util.Iterator;
+import java.util.logging.Logger;
+
+/**
+ * The steps of a node of the inductive miner recursion, shared by the miners that walk the recursion themselves.
+ * Every step returns null once the miner state is cancelled.
+ */
+public class InductiveMinerHelper {
+
+    private static final Logger logger = Logger.getLogger(InductiveMinerHelper.class.getName());
+
+    public static Node findBaseCases(IMLog log, IMLogInfo logInfo, ProcessTree tree, MinerState minerState) {
+        Node n = null;
+        Iterator<BaseCaseFinder> it = minerState.parameters.getBaseCaseFinders().iterator();
+        while (n == null && it.hasNext()) {
+
+            if (minerState.isCancelled()) {
+                return null;
+            }
+
+            n = it.next().findBaseCases(log, logInfo, tree, minerState);
+        }
+        return n;
+    }
+
+    public static Cut findCut(IMLog log, IMLogInfo logInfo, MinerState minerState) {
+        Cut c = null;
+        Iterator<CutFinder> it = minerState.parameters.getCutFinders().iterator();
+        while (it.hasNext() && (c == null || !c.isValid())) {
+
+            if (minerState.isCancelled()) {
+                return null;
+            }
+
+            c = it.next().findCut(log, logInfo, minerState);
+        }
+        return c;
+    }
+
+    public static Node findFallThrough(IMLog log, IMLogInfo logInfo, ProcessTree tree, MinerState minerState) {
+
+        Node n = null;
+        Iterator<FallThrough> it = minerState.parameters.getFallThroughs().iterator();
+        while (n == null && it.hasNext()) {
+
+            if (minerState.isCancelled()) {
+                return null;
+            }
+
+            n = it.next().fallThrough(log, logInfo, tree, minerState);
+        }
+        logger.info(String.format("Fall Through: %s", n));
+        return n;
+    }
+
+    public static LogSplitter.LogSplitResult splitLog(IMLog log, IMLogInfo logInfo, Cut cut, MinerState minerState) {
+        LogSplitter.LogSplitResult result = minerState.parameters.getLogSplitter().split(log, logInfo, cut, minerState);
+
+        if (minerState.isCancelled()) {
+            return null;
+        }
+
+        //merge the discarded events of this log splitting into the global discarded events list, siblings split concurrently
+        synchronized (minerState.discardedEvents) {
+            minerState.discardedEvents.addAll(result.discardedEvents);
+        }
+
+        return result;
+    }
+}
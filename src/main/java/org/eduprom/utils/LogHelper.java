@@ -1,9 +1,12 @@
 package org.eduprom.utils;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -158,6 +161,37 @@ public class LogHelper {
 		logger.log(level, String.format("Log: %s", s));
 	}
 
+	/**
+	 * Computes a content hash of the log, insensitive to the order of the traces.
+	 * @param log the log to hash
+	 * @return a hex encoded SHA-256 digest of the sorted trace activity sequences
+	 */
+	public String hash(XLog log){
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		List<String> traces = log.stream()
+				.map(x -> x.stream()
+						.map(y -> y.getAttributes().get("concept:name").toString())
+						.collect(Collectors.joining("\u001f")))
+				.sorted()
+				.collect(Collectors.toList());
+		for (String trace : traces){
+			digest.update(trace.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte)'\n');
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()){
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
 	public List<CrossValidationPartition> crossValidationSplit(XLog log, int k){
 		Collections.shuffle(log);
 		int partitionSize = log.size() / k;
@@ -0,0 +1,148 @@
+package org.eduprom.utils;
+
+import org.eduprom.exceptions.MiningException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+
+/**
+ * Work-stealing pool shared by the miners for their independent mining and conformance jobs.
+ */
+public final class MiningPool {
+
+    private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * A job that may fail with a checked exception.
+     */
+    public interface Job<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    //region private methods
+
+    private MiningPool(){
+
+    }
+
+    private static MiningException unwrap(RuntimeException e){
+        Throwable cause = e;
+        while (cause instanceof RuntimeException && cause.getCause() != null){
+            cause = cause.getCause();
+        }
+
+        if (cause instanceof MiningException){
+            return (MiningException) cause;
+        }
+        return new MiningException(cause);
+    }
+
+    //endregion
+
+    //region public methods
+
+    public static ForkJoinPool get(){
+        return pool;
+    }
+
+    /**
+     * Runs the job on every item on the shared pool.
+     *
+     * @return the results in the order of the items, regardless of the order the jobs completed in
+     * @throws MiningException the failure of the first failed job (in item order)
+     */
+    public static <T, R> List<R> map(List<T> items, Job<T, R> job) throws MiningException {
+        List<ForkJoinTask<R>> tasks = new ArrayList<>(items.size());
+        for (T item : items){
+            tasks.add(pool.submit(() -> job.apply(item)));
+        }
+
+        List<R> results = new ArrayList<>(items.size());
+        MiningException failure = null;
+        for (ForkJoinTask<R> task : tasks){
+            try {
+                results.add(task.join());
+            } catch (RuntimeException e) {
+                if (failure == null){
+                    failure = unwrap(e);
+                }
+                results.add(null);
+            }
+        }
+
+        if (failure != null){
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Runs the job on every item, the items the predicate accepts as separate tasks of the shared pool and the
+     * others in the calling thread. Called from a task of the pool, the tasks are forked to the queue of the
+     * calling worker, so a recursion of such calls is a fork-join recursion.
+     *
+     * @return the results in the order of the items
+     * @throws MiningException the failure of the first failed job (in item order)
+     */
+    public static <T, R> List<R> fork(List<T> items, Predicate<T> isTask, Job<T, R> job) throws MiningException {
+        boolean inPool = ForkJoinTask.getPool() == pool;
+        List<ForkJoinTask<R>> tasks = new ArrayList<>(items.size());
+        for (T item : items){
+            ForkJoinTask<R> task = null;
+            if (isTask.test(item)){
+                task = ForkJoinTask.adapt(() -> job.apply(item));
+                if (inPool){
+                    task.fork();
+                }
+                else {
+                    pool.execute(task);
+                }
+            }
+            tasks.add(task);
+        }
+
+        //the calling thread runs the other items while the tasks run
+        List<R> results = new ArrayList<>(items.size());
+        MiningException[] failures = new MiningException[items.size()];
+        for (int i = 0; i < items.size(); i++){
+            R result = null;
+            if (tasks.get(i) == null){
+                try {
+                    result = job.apply(items.get(i));
+                } catch (MiningException e) {
+                    failures[i] = e;
+                } catch (RuntimeException e) {
+                    failures[i] = unwrap(e);
+                } catch (Exception e) {
+                    failures[i] = new MiningException(e);
+                }
+            }
+            results.add(result);
+        }
+
+        MiningException failure = null;
+        for (int i = 0; i < items.size(); i++){
+            ForkJoinTask<R> task = tasks.get(i);
+            if (task != null){
+                try {
+                    results.set(i, task.join());
+                } catch (RuntimeException e) {
+                    failures[i] = unwrap(e);
+                }
+            }
+            if (failure == null){
+                failure = failures[i];
+            }
+        }
+
+        if (failure != null){
+            throw failure;
+        }
+        return results;
+    }
+
+    //endregion
+}
@@ -0,0 +1,214 @@
+package org.eduprom.utils;
+
+import org.eduprom.exceptions.MiningException;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.processtree.impl.ProcessTreeImpl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable process tree with path copying.
+ *
+ * Replacing a subtree copies only the nodes on the path from the root to it, every other node is shared with
+ * the original tree, so a tree with k replacements costs O(k * depth) nodes on top of its baseline. Nodes keep
+ * the ids of the ProM nodes they were built from. Nodes of the baseline are found through the child index
+ * paths of the baseline, which stay valid as long as only disjoint subtrees are replaced.
+ * {@link #toProcessTree()} materializes a ProM tree for conversion and printing.
+ */
+public final class PersistentProcessTree {
+
+    /**
+     * Immutable node, its type, name and id are the ones of the ProM node it was built from.
+     */
+    public static final class PersistentNode {
+        private final Node source;
+        private final PersistentNode[] children;
+        private volatile ProcessTreeKey key;
+
+        private PersistentNode(Node source, PersistentNode[] children){
+            this.source = source;
+            this.children = children;
+        }
+
+        private PersistentNode withChild(int index, PersistentNode child){
+            PersistentNode[] newChildren = children.clone();
+            newChildren[index] = child;
+            return new PersistentNode(source, newChildren);
+        }
+
+        public UUID getId(){
+            return source.getID();
+        }
+
+        public String getName(){
+            return source.getName();
+        }
+
+        public Class<? extends Node> getType(){
+            return source.getClass();
+        }
+
+        public boolean isLeaf(){
+            return children == null || children.length == 0;
+        }
+
+        public List<PersistentNode> getChildren(){
+            return children == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(children));
+        }
+
+        /**
+         * @return the canonical key of the subtree, computed once since the subtree never changes
+         */
+        public ProcessTreeKey getKey(){
+            if (key == null){
+                ProcessTreeKey[] childKeys = null;
+                if (children != null){
+                    childKeys = new ProcessTreeKey[children.length];
+                    for (int i = 0; i < children.length; i++){
+                        childKeys[i] = children[i].getKey();
+                    }
+                }
+                key = ProcessTreeKey.of(source, childKeys);
+            }
+            return key;
+        }
+    }
+
+    //region private members
+
+    private final PersistentNode root;
+    private final Map<UUID, int[]> paths;
+
+    //endregion
+
+    //region private methods
+
+    private static PersistentNode build(Node node, int[] path, Map<UUID, int[]> paths){
+        if (paths != null){
+            paths.put(node.getID(), path);
+        }
+
+        PersistentNode[] children = null;
+        if (node instanceof Block){
+            List<Node> blockChildren = ((Block) node).getChildren();
+            children = new PersistentNode[blockChildren.size()];
+            for (int i = 0; i < children.length; i++){
+                int[] childPath = paths != null ? Arrays.copyOf(path, path.length + 1) : null;
+                if (childPath != null){
+                    childPath[path.length] = i;
+                }
+                children[i] = build(blockChildren.get(i), childPath, paths);
+            }
+        }
+        return new PersistentNode(node, children);
+    }
+
+    private PersistentNode replace(PersistentNode node, int[] path, int depth, PersistentNode subtree){
+        if (depth == path.length){
+            return subtree;
+        }
+        PersistentNode child = node.children[path[depth]];
+        return node.withChild(path[depth], replace(child, path, depth + 1, subtree));
+    }
+
+    private static Node materialize(PersistentNode node, ProcessTree tree) throws MiningException {
+        Node newNode = PocessTreeHelper.newNode(node.source);
+        newNode.setProcessTree(tree);
+        tree.addNode(newNode);
+        if (node.children != null){
+            for (PersistentNode child : node.children){
+                ((Block) newNode).addChild(materialize(child, tree));
+            }
+        }
+        return newNode;
+    }
+
+    //endregion
+
+    //region constructors
+
+    private PersistentProcessTree(PersistentNode root, Map<UUID, int[]> paths){
+        this.root = root;
+        this.paths = paths;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Builds the baseline of a family of trees, its nodes can be looked up and replaced by id.
+     */
+    public static PersistentProcessTree of(ProcessTree tree){
+        Map<UUID, int[]> paths = new HashMap<>();
+        PersistentNode root = build(tree.getRoot(), new int[0], paths);
+        return new PersistentProcessTree(root, Collections.unmodifiableMap(paths));
+    }
+
+    /**
+     * Builds a subtree to be put into other trees by {@link #replace(UUID, PersistentNode)}.
+     */
+    public static PersistentNode node(Node node){
+        return build(node, null, null);
+    }
+
+    public PersistentNode getRoot(){
+        return root;
+    }
+
+    /**
+     * @return the node of the baseline with the given id, null if it is not in this tree (anymore)
+     */
+    public PersistentNode getNode(UUID id){
+        int[] path = paths.get(id);
+        if (path == null){
+            return null;
+        }
+
+        PersistentNode node = root;
+        for (int index : path){
+            //a replaced ancestor does not have to have the same shape
+            if (node.children == null || index >= node.children.length){
+                return null;
+            }
+            node = node.children[index];
+        }
+        return node.getId().equals(id) ? node : null;
+    }
+
+    public boolean contains(UUID id){
+        return getNode(id) != null;
+    }
+
+    /**
+     * Replaces the subtree rooted at the node of the baseline with the given id, this tree is left untouched.
+     *
+     * @return the new tree, null if the node is not in this tree (anymore)
+     */
+    public PersistentProcessTree replace(UUID id, PersistentNode subtree){
+        if (!contains(id)){
+            return null;
+        }
+        return new PersistentProcessTree(replace(root, paths.get(id), 0, subtree), paths);
+    }
+
+    /**
+     * @return a new ProM tree equal to this one, its nodes get new ids
+     * @throws MiningException in case the tree contains an unsupported node type
+     */
+    public ProcessTree toProcessTree() throws MiningException {
+        ProcessTree tree = new ProcessTreeImpl();
+        Node newRoot = materialize(root, tree);
+        tree.setRoot(newRoot);
+        return tree;
+    }
+
+    //endregion
+}
@@ -1,10 +1,15 @@
 package org.eduprom.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
 import org.deckfour.xes.model.XTrace;
 import org.deckfour.xes.model.impl.XLogImpl;
 import org.eduprom.exceptions.ConformanceCheckException;
 import org.eduprom.exceptions.ExportFailedException;
+import org.eduprom.exceptions.MiningCancelledException;
+import org.eduprom.exceptions.MiningException;
 import org.eduprom.exceptions.ProcessTreeConversionException;
 import org.eduprom.miners.AbstractMiner;
 import nl.tue.astar.AStarException;
@@ -47,6 +52,7 @@ import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -58,6 +64,12 @@ public class PetrinetHelper {
 
     private XEventClassifier eventClassifier;
     private PluginContext pluginContext;
+    private boolean reduceBeforeAlignment;
+    private final PetrinetReducer reducer = new PetrinetReducer();
+    private static final int MAX_CACHED_NETS = 10000;
+    private static final Cache<ProcessTreeKey, ProcessTree2Petrinet.PetrinetWithMarkings> nets = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_NETS).recordStats().build();
+    private Deadline deadline;
 
     //endregion
 
@@ -104,10 +116,8 @@ public class PetrinetHelper {
         return costMOS;
     }
 
-    private static Map<XEventClass, Integer> constructMOTCostFunction(PetrinetGraph net, XLog log,
-                                                                      XEventClassifier eventClassifier) {
+    private static Map<XEventClass, Integer> constructMOTCostFunction(PetrinetGraph net, XLogInfo summary) {
         Map<XEventClass, Integer> costMOT = new HashMap<XEventClass, Integer>();
-        XLogInfo summary = XLogInfoFactory.createLogInfo(log, eventClassifier);
 
         for (XEventClass evClass : summary.getEventClasses().getClasses()) {
             costMOT.put(evClass, 1);
@@ -116,11 +126,9 @@ public class PetrinetHelper {
         return costMOT;
     }
 
-    private static TransEvClassMapping constructMapping(PetrinetGraph net, XLog log, XEventClassifier eventClassifier) {
+    private static TransEvClassMapping constructMapping(PetrinetGraph net, XLogInfo summary, XEventClassifier eventClassifier) {
         TransEvClassMapping mapping = new TransEvClassMapping(eventClassifier, new XEventClass("DUMMY", 99999));
 
-        XLogInfo summary = XLogInfoFactory.createLogInfo(log, eventClassifier);
-
         for (Transition t : net.getTransitions()) {
             for (XEventClass evClass : summary.getEventClasses().getClasses()) {
                 String id = evClass.getId();
@@ -136,6 +144,59 @@ public class PetrinetHelper {
         return mapping;
     }
 
+    private PNRepResult replay(XLog log, XLogInfo logInfo, PetrinetGraph net, Marking initialMarking, Marking finalMarking) {
+
+        Map<Transition, Integer> costMOS = constructMOSCostFunction(net);
+        XEventClassifier eventClassifier = this.eventClassifier;
+        Map<XEventClass, Integer> costMOT = constructMOTCostFunction(net, logInfo);
+        TransEvClassMapping mapping = constructMapping(net, logInfo, eventClassifier);
+
+        AbstractPetrinetReplayer<?, ?> replayEngine = new PetrinetReplayerWithoutILP();
+
+        IPNReplayParameter parameters = new CostBasedCompleteParam(costMOT, costMOS);
+        parameters.setInitialMarking(initialMarking);
+
+        if (finalMarking != null){
+            parameters.setFinalMarkings(finalMarking);
+        }
+
+        parameters.setGUIMode(false);
+        parameters.setCreateConn(false);
+        parameters.setNumThreads(4);
+
+        ((CostBasedCompleteParam) parameters).setMaxNumOfStates(5000);
+
+        if (deadline == null){
+            PNRepResult result = null;
+            try {
+                result = replayEngine.replayLog(pluginContext, net, log, mapping, parameters);
+
+            } catch (AStarException e) {
+                e.printStackTrace();
+            }
+
+            return result;
+        }
+
+        //the replayer polls the progress of its context, cancelling it stops the replay cooperatively
+        PluginContext replayContext;
+        //the plugin context is shared by the threads of a miner, its children are not
+        synchronized (pluginContext){
+            replayContext = pluginContext.createChildContext("replay");
+        }
+        try (Deadline.Registration listener = deadline.onCancel(() -> replayContext.getProgress().cancel())) {
+            PNRepResult result = replayEngine.replayLog(replayContext, net, log, mapping, parameters);
+            return replayContext.getProgress().isCancelled() ? null : result;
+        } catch (AStarException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            synchronized (pluginContext){
+                pluginContext.deleteChild(replayContext);
+            }
+        }
+    }
+
 
     //endregion
 
@@ -150,50 +211,112 @@ public class PetrinetHelper {
 
     //region public methods
 
+    /**
+     * Computes the alignment of the log on the given net.
+     *
+     * When enabled with {@link #setReduceBeforeAlignment(boolean)}, the replay runs on a reduced copy of the net
+     * (see {@link PetrinetReducer}), the returned alignment always refers to the transitions of the given net.
+     */
     public PNRepResult getAlignment(XLog log, PetrinetGraph net, Marking initialMarking, Marking finalMarking) {
+        return getAlignment(log, getLogInfo(log), net, initialMarking, finalMarking);
+    }
 
-        Map<Transition, Integer> costMOS = constructMOSCostFunction(net);
-        XEventClassifier eventClassifier = this.eventClassifier;
-        Map<XEventClass, Integer> costMOT = constructMOTCostFunction(net, log, eventClassifier);
-        TransEvClassMapping mapping = constructMapping(net, log, eventClassifier);
+    /**
+     * Same as {@link #getAlignment(XLog, PetrinetGraph, Marking, Marking)}, with the info of the log computed by
+     * {@link #getLogInfo(XLog)}, for callers that align the same log on many nets.
+     */
+    public PNRepResult getAlignment(XLog log, XLogInfo logInfo, PetrinetGraph net, Marking initialMarking, Marking finalMarking) {
+        if (reduceBeforeAlignment){
+            PetrinetReducer.ReducedPetrinet reduced = reducer.reduce(net, initialMarking, finalMarking);
+            if (reduced.getRemoved() > 0){
+                PNRepResult alignment = replay(log, logInfo, reduced.getPetrinet(), reduced.getInitialMarking(),
+                        finalMarking != null ? reduced.getFinalMarking() : null);
+                return reduced.restore(alignment);
+            }
+        }
 
-        AbstractPetrinetReplayer<?, ?> replayEngine = new PetrinetReplayerWithoutILP();
+        return replay(log, logInfo, net, initialMarking, finalMarking);
+    }
 
-        IPNReplayParameter parameters = new CostBasedCompleteParam(costMOT, costMOS);
-        parameters.setInitialMarking(initialMarking);
+    /**
+     * Same as {@link #getAlignment(XLog, PetrinetGraph, Marking, Marking)}, for callers that need a result.
+     *
+     * @throws MiningCancelledException if the replay was cancelled by the deadline
+     * @throws ConformanceCheckException if the replay failed
+     */
+    public PNRepResult getCompleteAlignment(XLog log, PetrinetGraph net, Marking initialMarking, Marking finalMarking) throws MiningException {
+        return getCompleteAlignment(log, getLogInfo(log), net, initialMarking, finalMarking);
+    }
 
-        if (finalMarking != null){
-            parameters.setFinalMarkings(finalMarking);
+    /**
+     * Same as {@link #getCompleteAlignment(XLog, PetrinetGraph, Marking, Marking)}, with the info of the log
+     * computed by {@link #getLogInfo(XLog)}.
+     */
+    public PNRepResult getCompleteAlignment(XLog log, XLogInfo logInfo, PetrinetGraph net, Marking initialMarking, Marking finalMarking) throws MiningException {
+        if (deadline != null && deadline.isCancelled()){
+            throw new MiningCancelledException(String.format("alignment skipped, %s", deadline.getReason()));
         }
 
-        parameters.setGUIMode(false);
-        parameters.setCreateConn(false);
-        parameters.setNumThreads(4);
+        PNRepResult alignment = getAlignment(log, logInfo, net, initialMarking, finalMarking);
+        if (alignment == null){
+            if (deadline != null && deadline.isCancelled()){
+                throw new MiningCancelledException(String.format("alignment cancelled, %s", deadline.getReason()));
+            }
+            throw new ConformanceCheckException("alignment failed");
+        }
+        return alignment;
+    }
 
-        ((CostBasedCompleteParam) parameters).setMaxNumOfStates(5000);
+    /**
+     * @return the event classes of the log under the classifier of this helper
+     */
+    public XLogInfo getLogInfo(XLog log) {
+        return XLogInfoFactory.createLogInfo(log, eventClassifier);
+    }
 
-        PNRepResult result = null;
-        try {
-            result = replayEngine.replayLog(pluginContext, net, log, mapping, parameters);
+    public Deadline getDeadline() {
+        return deadline;
+    }
 
-        } catch (AStarException e) {
-            e.printStackTrace();
-        }
+    /**
+     * @param deadline cancels running replays when it expires, null for none
+     */
+    public void setDeadline(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    public boolean isReduceBeforeAlignment() {
+        return reduceBeforeAlignment;
+    }
 
-        return result;
+    /**
+     * @param reduceBeforeAlignment replay on a reduced copy of the net, off by default. The reduction keeps the
+     *                              language of the net and the cost of the optimal alignments, but the replayer
+     *                              may pick a different optimal alignment on it, which can change the precision
+     */
+    public void setReduceBeforeAlignment(boolean reduceBeforeAlignment) {
+        this.reduceBeforeAlignment = reduceBeforeAlignment;
     }
 
     public AlignmentPrecGenRes getConformance(XLog log, Petrinet net, PNRepResult alignment, Marking initialMarking, Marking finalMarking){
         AlignmentPrecGen alignmentPrecGen = new AlignmentPrecGen();
-        TransEvClassMapping mapping = constructMapping(net, log, eventClassifier);
+        TransEvClassMapping mapping = constructMapping(net, getLogInfo(log), eventClassifier);
         return alignmentPrecGen.measureConformanceAssumingCorrectAlignment(pluginContext, mapping, alignment,
                 net, initialMarking, false);
     }
 
     public double getPrecision(XLog log, Petrinet net, PNRepResult alignment, Marking initialMarking, Marking finalMarking) throws ConformanceCheckException {
+        return getPrecision(log, getLogInfo(log), net, alignment, initialMarking, finalMarking);
+    }
+
+    /**
+     * Same as {@link #getPrecision(XLog, Petrinet, PNRepResult, Marking, Marking)}, with the info of the log
+     * computed by {@link #getLogInfo(XLog)}.
+     */
+    public double getPrecision(XLog log, XLogInfo logInfo, Petrinet net, PNRepResult alignment, Marking initialMarking, Marking finalMarking) throws ConformanceCheckException {
 
         AlignETCPlugin etcPlugin = new AlignETCPlugin();
-        TransEvClassMapping mapping = constructMapping(net, log, eventClassifier);
+        TransEvClassMapping mapping = constructMapping(net, logInfo, eventClassifier);
         EvClassLogPetrinetConnection connection = new EvClassLogPetrinetConnection("", net, log, eventClassifier, mapping);
         PNMatchInstancesRepResult pNMatchInstancesRepResult = toPNMatchInstancesRepResult(alignment);
         AlignETCResult res = null;
@@ -250,6 +373,29 @@ public class PetrinetHelper {
         }
     }
 
+    /**
+     * Same as {@link #ConvertToPetrinet(ProcessTree)}, memoized by {@link ProcessTreeKey} for the many trees
+     * that are evaluated more than once during a search. Trees with the same key only differ in the order of
+     * children under commutative operators, so their nets align the same.
+     *
+     * The returned net is shared by every caller of an equal tree and must not be modified.
+     */
+    public static ProcessTree2Petrinet.PetrinetWithMarkings ConvertToPetrinetCached(ProcessTree processTree) throws ProcessTreeConversionException {
+        try {
+            return nets.get(ProcessTreeKey.of(processTree), () -> ConvertToPetrinet(processTree));
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof ProcessTreeConversionException ?
+                    (ProcessTreeConversionException) e.getCause() : new ProcessTreeConversionException(e);
+        }
+    }
+
+    /**
+     * @return the hits and misses of {@link #ConvertToPetrinetCached(ProcessTree)}
+     */
+    public static CacheStats getConversionStats() {
+        return nets.stats();
+    }
+
     public void export(Petrinet petrinet, String path) throws ExportFailedException {
         //fake export from prom plugin :)
         GraphVisualizerPlugin p = new GraphVisualizerPlugin();
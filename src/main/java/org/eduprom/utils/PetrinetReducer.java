@@ -0,0 +1,320 @@
+package org.eduprom.utils;
+
+import org.processmining.models.graphbased.directed.petrinet.Petrinet;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetEdge;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetGraph;
+import org.processmining.models.graphbased.directed.petrinet.PetrinetNode;
+import org.processmining.models.graphbased.directed.petrinet.elements.Arc;
+import org.processmining.models.graphbased.directed.petrinet.elements.Place;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.models.graphbased.directed.petrinet.impl.PetrinetFactory;
+import org.processmining.models.semantics.petrinet.Marking;
+import org.processmining.plugins.petrinet.replayresult.PNRepResult;
+import org.processmining.plugins.petrinet.replayresult.StepTypes;
+import org.processmining.plugins.replayer.replayresult.SyncReplayResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Behavior preserving reduction of petri nets before alignment.
+ *
+ * Applies the following Murata rules on silent transitions until a fixpoint is reached:
+ * <ul>
+ *     <li>elimination of silent self-loop transitions,</li>
+ *     <li>fusion of parallel silent transitions (identical pre and post sets),</li>
+ *     <li>fusion of series places: a silent transition that is the only consumer of its single input place
+ *     and the only producer of its single output place is removed and both places are merged.</li>
+ * </ul>
+ * The reduced net keeps a mapping back to the original transitions, alignments computed on the reduced
+ * net are restored to the original net by re-inserting the removed silent moves.
+ */
+public class PetrinetReducer {
+
+    /**
+     * A reduced net together with what is needed to map its alignments back to the original net.
+     */
+    public static class ReducedPetrinet {
+        private final Petrinet petrinet;
+        private final PetrinetGraph originalNet;
+        private final Marking initialMarking;
+        private final Marking finalMarking;
+        private final Map<Transition, Transition> originalTransitions;
+        private final List<Transition> seriesTransitions;
+        private final Map<Transition, int[]> seriesPlaces;
+        private final Map<Place, Integer> originalPlaces;
+        private final int[] originalInitialMarking;
+        private final int removed;
+
+        private ReducedPetrinet(Petrinet petrinet, PetrinetGraph originalNet, Marking initialMarking, Marking finalMarking,
+                                Map<Transition, Transition> originalTransitions, List<Transition> seriesTransitions,
+                                Map<Transition, int[]> seriesPlaces, Map<Place, Integer> originalPlaces,
+                                int[] originalInitialMarking, int removed){
+            this.petrinet = petrinet;
+            this.originalNet = originalNet;
+            this.initialMarking = initialMarking;
+            this.finalMarking = finalMarking;
+            this.originalTransitions = originalTransitions;
+            this.seriesTransitions = seriesTransitions;
+            this.seriesPlaces = seriesPlaces;
+            this.originalPlaces = originalPlaces;
+            this.originalInitialMarking = originalInitialMarking;
+            this.removed = removed;
+        }
+
+        public Petrinet getPetrinet() {
+            return petrinet;
+        }
+
+        public Marking getInitialMarking() {
+            return initialMarking;
+        }
+
+        public Marking getFinalMarking() {
+            return finalMarking;
+        }
+
+        /**
+         * @return the original transition of a transition of the reduced net
+         */
+        public Transition getOriginal(Transition transition){
+            return originalTransitions.get(transition);
+        }
+
+        /**
+         * @return the number of transitions removed by the reduction
+         */
+        public int getRemoved() {
+            return removed;
+        }
+
+        private int fireSeries(int[] marking, List<Object> nodes, List<StepTypes> types){
+            int fired = 0;
+            boolean changed = true;
+            while (changed){
+                changed = false;
+                for (Transition transition : seriesTransitions){
+                    int[] places = seriesPlaces.get(transition);
+                    if (marking[places[0]] > 0){
+                        marking[places[0]]--;
+                        marking[places[1]]++;
+                        nodes.add(transition);
+                        types.add(StepTypes.MINVI);
+                        changed = true;
+                        fired++;
+                    }
+                }
+            }
+            return fired;
+        }
+
+        private void fire(int[] marking, Transition transition){
+            for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : originalNet.getInEdges(transition)){
+                marking[originalPlaces.get(edge.getSource())] -= getWeight(edge);
+            }
+            for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : originalNet.getOutEdges(transition)){
+                marking[originalPlaces.get(edge.getTarget())] += getWeight(edge);
+            }
+        }
+
+        /**
+         * Rewrites an alignment of the reduced net in place so it refers to the original net.
+         */
+        public PNRepResult restore(PNRepResult alignment){
+            if (alignment == null || removed == 0){
+                return alignment;
+            }
+
+            for (SyncReplayResult rep : alignment){
+                List<Object> nodes = new ArrayList<>();
+                List<StepTypes> types = new ArrayList<>();
+                int[] marking = originalInitialMarking.clone();
+                for (int i = 0; i < rep.getNodeInstance().size(); i++){
+                    Object node = rep.getNodeInstance().get(i);
+                    StepTypes type = rep.getStepTypes().get(i);
+                    if (node instanceof Transition && type != StepTypes.L){
+                        fireSeries(marking, nodes, types);
+                        Transition original = originalTransitions.get(node);
+                        fire(marking, original);
+                        node = original;
+                    }
+                    nodes.add(node);
+                    types.add(type);
+                }
+                fireSeries(marking, nodes, types);
+                rep.setNodeInstance(nodes);
+                rep.setStepTypes(types);
+            }
+            return alignment;
+        }
+    }
+
+    //region private methods
+
+    private static int getWeight(PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge){
+        return edge instanceof Arc ? ((Arc) edge).getWeight() : 1;
+    }
+
+    private static int[] toArray(Marking marking, List<Place> places){
+        int[] result = new int[places.size()];
+        for (int i = 0; i < places.size(); i++){
+            result[i] = marking == null ? 0 : marking.occurrences(places.get(i));
+        }
+        return result;
+    }
+
+    //endregion
+
+    //region public methods
+
+    public ReducedPetrinet reduce(PetrinetGraph net, Marking initialMarking, Marking finalMarking){
+        List<Place> places = new ArrayList<>(net.getPlaces());
+        Map<Place, Integer> placeIndex = new HashMap<>();
+        for (int i = 0; i < places.size(); i++){
+            placeIndex.put(places.get(i), i);
+        }
+        List<Transition> transitions = new ArrayList<>(net.getTransitions());
+
+        //pre and post sets: place index -> weight
+        List<Map<Integer, Integer>> pre = new ArrayList<>();
+        List<Map<Integer, Integer>> post = new ArrayList<>();
+        List<Set<Integer>> producers = new ArrayList<>();
+        List<Set<Integer>> consumers = new ArrayList<>();
+        for (int i = 0; i < places.size(); i++){
+            producers.add(new HashSet<>());
+            consumers.add(new HashSet<>());
+        }
+        for (int t = 0; t < transitions.size(); t++){
+            Map<Integer, Integer> in = new HashMap<>();
+            for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getInEdges(transitions.get(t))){
+                int place = placeIndex.get(edge.getSource());
+                in.merge(place, getWeight(edge), Integer::sum);
+                consumers.get(place).add(t);
+            }
+            Map<Integer, Integer> out = new HashMap<>();
+            for (PetrinetEdge<? extends PetrinetNode, ? extends PetrinetNode> edge : net.getOutEdges(transitions.get(t))){
+                int place = placeIndex.get(edge.getTarget());
+                out.merge(place, getWeight(edge), Integer::sum);
+                producers.get(place).add(t);
+            }
+            pre.add(in);
+            post.add(out);
+        }
+
+        int[] initial = toArray(initialMarking, places);
+        int[] fin = toArray(finalMarking, places);
+        boolean[] removedTransitions = new boolean[transitions.size()];
+        boolean[] removedPlaces = new boolean[places.size()];
+        List<Integer> series = new ArrayList<>();
+        Map<Integer, int[]> seriesPlaces = new HashMap<>();
+
+        boolean changed = true;
+        while (changed){
+            changed = false;
+            Map<String, Integer> silentSignatures = new HashMap<>();
+            for (int t = 0; t < transitions.size(); t++){
+                if (removedTransitions[t] || !transitions.get(t).isInvisible()){
+                    continue;
+                }
+
+                Map<Integer, Integer> in = pre.get(t);
+                Map<Integer, Integer> out = post.get(t);
+
+                //self-loop, or parallel to another silent transition
+                String signature = in.toString() + "->" + out.toString();
+                if ((!in.isEmpty() && in.equals(out)) || silentSignatures.putIfAbsent(signature, t) != null){
+                    removedTransitions[t] = true;
+                    for (int place : in.keySet()){
+                        consumers.get(place).remove(t);
+                    }
+                    for (int place : out.keySet()){
+                        producers.get(place).remove(t);
+                    }
+                    changed = true;
+                    continue;
+                }
+
+                //series places
+                if (in.size() != 1 || out.size() != 1){
+                    continue;
+                }
+                int p = in.keySet().iterator().next();
+                int q = out.keySet().iterator().next();
+                if (p == q || in.get(p) != 1 || out.get(q) != 1 || fin[p] > 0
+                        || consumers.get(p).size() != 1 || producers.get(q).size() != 1){
+                    continue;
+                }
+
+                for (int producer : producers.get(p)){
+                    Map<Integer, Integer> producerPost = post.get(producer);
+                    producerPost.merge(q, producerPost.remove(p), Integer::sum);
+                    producers.get(q).add(producer);
+                }
+                producers.get(q).remove(t);
+                initial[q] += initial[p];
+                fin[q] += fin[p];
+                removedPlaces[p] = true;
+                removedTransitions[t] = true;
+                series.add(t);
+                seriesPlaces.put(t, new int[] { p, q });
+                changed = true;
+                //signatures of the producers changed, start a new pass
+                break;
+            }
+        }
+
+        //build the reduced net
+        Petrinet reduced = PetrinetFactory.newPetrinet(net.getLabel());
+        Map<Integer, Place> newPlaces = new HashMap<>();
+        Marking reducedInitial = new Marking();
+        Marking reducedFinal = new Marking();
+        for (int p = 0; p < places.size(); p++){
+            if (removedPlaces[p]){
+                continue;
+            }
+            Place place = reduced.addPlace(places.get(p).getLabel());
+            newPlaces.put(p, place);
+            if (initial[p] > 0){
+                reducedInitial.add(place, initial[p]);
+            }
+            if (fin[p] > 0){
+                reducedFinal.add(place, fin[p]);
+            }
+        }
+
+        Map<Transition, Transition> originalTransitions = new HashMap<>();
+        int removed = 0;
+        for (int t = 0; t < transitions.size(); t++){
+            if (removedTransitions[t]){
+                removed++;
+                continue;
+            }
+            Transition original = transitions.get(t);
+            Transition transition = reduced.addTransition(original.getLabel());
+            transition.setInvisible(original.isInvisible());
+            for (Map.Entry<Integer, Integer> entry : pre.get(t).entrySet()){
+                reduced.addArc(newPlaces.get(entry.getKey()), transition, entry.getValue());
+            }
+            for (Map.Entry<Integer, Integer> entry : post.get(t).entrySet()){
+                reduced.addArc(transition, newPlaces.get(entry.getKey()), entry.getValue());
+            }
+            originalTransitions.put(transition, original);
+        }
+
+        List<Transition> seriesTransitions = new ArrayList<>();
+        Map<Transition, int[]> seriesTransitionPlaces = new HashMap<>();
+        for (int t : series){
+            seriesTransitions.add(transitions.get(t));
+            seriesTransitionPlaces.put(transitions.get(t), seriesPlaces.get(t));
+        }
+
+        return new ReducedPetrinet(reduced, net, reducedInitial, reducedFinal, originalTransitions,
+                seriesTransitions, seriesTransitionPlaces, placeIndex, toArray(initialMarking, places), removed);
+    }
+
+    //endregion
+}
@@ -4,45 +4,20 @@ import nu.xom.Nodes;
 import org.eduprom.exceptions.MiningException;
 import org.jbpt.petri.untangling.Process;
 import org.processmining.processtree.Block;
-import org.processmining.processtree.Edge;
 import org.processmining.processtree.Node;
 import org.processmining.processtree.ProcessTree;
+import org.processmining.processtree.Task;
+import org.processmining.plugins.InductiveMiner.mining.interleaved.Interleaved;
+import org.processmining.plugins.InductiveMiner.mining.interleaved.MaybeInterleaved;
 import org.processmining.processtree.impl.AbstractBlock;
+import org.processmining.processtree.impl.AbstractTask;
+import org.processmining.processtree.impl.ProcessTreeImpl;
 
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-import static java.util.stream.Stream.concat;
 
 public class PocessTreeHelper {
 
-    private final Lock lock = new ReentrantLock();
-
-    private Stream<Node> getAllRecursiveNodes(Node node){
-
-
-        if (node instanceof AbstractBlock){
-            Stream rec = ((AbstractBlock)node).getChildren().stream().flatMap(this::getAllRecursiveNodes);
-            return concat(rec, Stream.of(node));
-        }
-
-        return Stream.of(node);
-    }
-
-    private Stream<Edge> getAllRecursiveEdges(Node node){
-
-        if (node instanceof AbstractBlock){
-            Stream<Edge> rec = ((AbstractBlock)node).getChildren().stream().flatMap(this::getAllRecursiveEdges);
-            Stream<Edge> edgeStream = (((AbstractBlock) node).getOutgoingEdges()).stream();
-            return Stream.concat(rec, edgeStream);
-        }
-
-        return Stream.empty();
-    }
-
     /*
     public void merge(Node source, Node target) throws MiningException {
         if(source.toString().equals(target.toString())){
@@ -86,61 +61,74 @@ public class PocessTreeHelper {
     }
     */
 
-    public void merge(Node source, Node target) throws MiningException {
-        lock.lock();
-        ProcessTree tree = target.getProcessTree();
-        String pre = tree.toString();
-        tree.addNode(source);
-
-        List<Node> replacesNodes = null;
-        List<Edge> replacesEdges = null;
-        try{
-            if (target.isRoot()){
-                tree.setRoot(source);
-            }
-            else {
-                Collection<Block> replaceBlocks = target.getParents();
-                if (replaceBlocks.size() != 1){
-                    throw new MiningException("more than one replace blocks is not allowed.");
-                }
-
-                Block replaceBlock = replaceBlocks.stream().findAny().get();
-                replaceBlock.swapChildAt(source, replaceBlock.getChildren().indexOf(target));
+    /**
+     * Copies the subtree rooted at the given node into a new standalone process tree.
+     *
+     * @param node the root of the subtree to copy
+     * @return a new process tree, the given tree is left untouched
+     * @throws MiningException in case the subtree contains an unsupported node type
+     */
+    public ProcessTree extract(Node node) throws MiningException {
+        ProcessTree tree = new ProcessTreeImpl();
+        Node root = copy(node, tree);
+        root.setProcessTree(tree);
+        tree.setRoot(root);
+        return tree;
+    }
 
-                /*
-                List<Node> nodes = getAllRecursiveNodes(target).collect(Collectors.toList());
-                nodes.forEach(tree::removeNode);
-                List<Edge> edges = getAllRecursiveEdges(target).collect(Collectors.toList());
-                edges.forEach(tree::removeEdge);
-                */
+    private Node copy(Node node, ProcessTree tree) throws MiningException {
+        Node newNode = newNode(node);
+        newNode.setProcessTree(tree);
+        tree.addNode(newNode);
+        if (node instanceof Block){
+            for (Node child : ((Block) node).getChildren()){
+                ((Block) newNode).addChild(copy(child, tree));
             }
-            //add all new nodes and edges
-            List<Node> sourceNodes = getAllRecursiveNodes(source).collect(Collectors.toList());
-            sourceNodes.forEach(x -> tree.addNode(x));
-            List<Edge> sourceEdges = getAllRecursiveEdges(source).collect(Collectors.toList());
-            sourceEdges.forEach(x->tree.addEdge(x));
-
+        }
+        return newNode;
+    }
 
-            List<Node> nodes = getAllRecursiveNodes(target).collect(Collectors.toList());
-            List<Edge> edges = getAllRecursiveEdges(target).collect(Collectors.toList());
-            nodes.forEach(x->tree.removeNode(x));
-            edges.forEach(x->tree.removeEdge(x));
-            /*
-            tree.getNodes().stream().filter(node -> !sourceNodes.contains(node)).collect(Collectors.toList())
-                    .forEach(x -> tree.removeNode(x));
-            tree.getEdges().stream().filter(edge -> !sourceEdges.contains(edge)).collect(Collectors.toList())
-                    .forEach(x -> tree.removeEdge(x));
-            */
+    /**
+     * @return a new detached node of the same type and name as the given one
+     */
+    static Node newNode(Node node) throws MiningException {
+        String name = node.getName();
+        if (node instanceof MaybeInterleaved){
+            return new MaybeInterleaved(name);
         }
-        finally {
-            lock.unlock();
+        if (node instanceof Interleaved){
+            return new Interleaved(name);
         }
-        /*
-        String post = tree.toString();
-        if(source.toString() != target.toString() && pre.equals(post)){
-            throw new MiningException("tree did not changed as a result of a tree merge operation");
-        }*/
+        if (node instanceof Block.XorLoop){
+            return new AbstractBlock.XorLoop(name);
+        }
+        if (node instanceof Block.DefLoop){
+            return new AbstractBlock.DefLoop(name);
+        }
+        if (node instanceof Block.Seq){
+            return new AbstractBlock.Seq(name);
+        }
+        if (node instanceof Block.Xor){
+            return new AbstractBlock.Xor(name);
+        }
+        if (node instanceof Block.Def){
+            return new AbstractBlock.Def(name);
+        }
+        if (node instanceof Block.And){
+            return new AbstractBlock.And(name);
+        }
+        if (node instanceof Block.Or){
+            return new AbstractBlock.Or(name);
+        }
+        if (node instanceof Task.Automatic){
+            return new AbstractTask.Automatic(name);
+        }
+        if (node instanceof Task.Manual){
+            return new AbstractTask.Manual(name);
+        }
+        throw new MiningException(String.format("unsupported process tree node: %s", node.getClass().getName()));
     }
+
     /*
     public void align(Node node){
         ProcessTree tree = node.getProcessTree();
@@ -0,0 +1,137 @@
+package org.eduprom.utils;
+
+import org.processmining.plugins.InductiveMiner.mining.interleaved.Interleaved;
+import org.processmining.plugins.InductiveMiner.mining.interleaved.MaybeInterleaved;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.processtree.Task;
+import org.processmining.processtree.impl.AbstractBlock;
+import org.processmining.processtree.impl.AbstractTask;
+import org.processmining.processtree.impl.ProcessTreeImpl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of process trees: every node in pre-order as its type, its name and its number of
+ * children. Node ids are not kept, callers refer to nodes by their pre-order index instead.
+ */
+public final class ProcessTreeCodec {
+
+    private static final byte MAYBE_INTERLEAVED = 1;
+    private static final byte INTERLEAVED = 2;
+    private static final byte XOR_LOOP = 3;
+    private static final byte DEF_LOOP = 4;
+    private static final byte SEQ = 5;
+    private static final byte XOR = 6;
+    private static final byte DEF = 7;
+    private static final byte AND = 8;
+    private static final byte OR = 9;
+    private static final byte AUTOMATIC = 10;
+    private static final byte MANUAL = 11;
+
+    //region private methods
+
+    private ProcessTreeCodec(){
+
+    }
+
+    private static byte getType(Node node) throws IOException {
+        //subtypes first, interleaved blocks are also sequences or ands
+        if (node instanceof MaybeInterleaved) return MAYBE_INTERLEAVED;
+        if (node instanceof Interleaved) return INTERLEAVED;
+        if (node instanceof Block.XorLoop) return XOR_LOOP;
+        if (node instanceof Block.DefLoop) return DEF_LOOP;
+        if (node instanceof Block.Seq) return SEQ;
+        if (node instanceof Block.Xor) return XOR;
+        if (node instanceof Block.Def) return DEF;
+        if (node instanceof Block.And) return AND;
+        if (node instanceof Block.Or) return OR;
+        if (node instanceof Task.Automatic) return AUTOMATIC;
+        if (node instanceof Task.Manual) return MANUAL;
+        throw new IOException(String.format("unsupported process tree node: %s", node.getClass().getName()));
+    }
+
+    private static Node newNode(byte type, String name) throws IOException {
+        switch (type){
+            case MAYBE_INTERLEAVED: return new MaybeInterleaved(name);
+            case INTERLEAVED: return new Interleaved(name);
+            case XOR_LOOP: return new AbstractBlock.XorLoop(name);
+            case DEF_LOOP: return new AbstractBlock.DefLoop(name);
+            case SEQ: return new AbstractBlock.Seq(name);
+            case XOR: return new AbstractBlock.Xor(name);
+            case DEF: return new AbstractBlock.Def(name);
+            case AND: return new AbstractBlock.And(name);
+            case OR: return new AbstractBlock.Or(name);
+            case AUTOMATIC: return new AbstractTask.Automatic(name);
+            case MANUAL: return new AbstractTask.Manual(name);
+        }
+        throw new IOException(String.format("unknown process tree node type: %d", type));
+    }
+
+    private static void write(DataOutput output, Node node, List<Node> nodes) throws IOException {
+        nodes.add(node);
+        output.writeByte(getType(node));
+        output.writeUTF(node.getName());
+        if (node instanceof Block){
+            List<Node> children = ((Block) node).getChildren();
+            output.writeShort(children.size());
+            for (Node child : children){
+                write(output, child, nodes);
+            }
+        }
+    }
+
+    private static Node read(DataInput input, ProcessTree tree, List<Node> nodes) throws IOException {
+        byte type = input.readByte();
+        Node node = newNode(type, input.readUTF());
+        node.setProcessTree(tree);
+        tree.addNode(node);
+        nodes.add(node);
+        if (node instanceof Block){
+            int children = input.readUnsignedShort();
+            for (int i = 0; i < children; i++){
+                ((Block) node).addChild(read(input, tree, nodes));
+            }
+        }
+        return node;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Writes the given tree.
+     *
+     * @return the nodes of the tree in pre-order, the order in which they are read back
+     */
+    public static List<Node> write(DataOutput output, ProcessTree tree) throws IOException {
+        List<Node> nodes = new ArrayList<>();
+        write(output, tree.getRoot(), nodes);
+        return nodes;
+    }
+
+    /**
+     * Reads a tree written by {@link #write(DataOutput, ProcessTree)}.
+     *
+     * @return the nodes of the new tree in pre-order, the first one is its root
+     */
+    public static List<Node> read(DataInput input) throws IOException {
+        ProcessTree tree = new ProcessTreeImpl();
+        List<Node> nodes = new ArrayList<>();
+        Node root = read(input, tree, nodes);
+        tree.setRoot(root);
+        return nodes;
+    }
+
+    public static ProcessTree readTree(DataInput input) throws IOException {
+        return read(input).get(0).getProcessTree();
+    }
+
+    //endregion
+}
@@ -0,0 +1,118 @@
+package org.eduprom.utils;
+
+import org.processmining.plugins.InductiveMiner.mining.interleaved.Interleaved;
+import org.processmining.plugins.InductiveMiner.mining.interleaved.MaybeInterleaved;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Structural (Merkle) hash of process trees.
+ *
+ * The hash of a node combines its type, its name for tasks, and the hashes of its children, so equal
+ * subtrees get equal hashes no matter which tree they belong to. The order of the children is ignored under
+ * commutative operators (xor, and, or, def, interleaved), so trees that only differ in the order of such
+ * children get the same hash.
+ */
+public final class ProcessTreeHash {
+
+    //region private methods
+
+    private ProcessTreeHash(){
+
+    }
+
+    private static long mix(long value){
+        //splitmix64 finalizer
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static long hashString(String value){
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++){
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long getNodeHash(Node node){
+        long hash = hashString(node.getClass().getName());
+        if (!(node instanceof Block)){
+            hash = mix(hash * 31 + hashString(node.getName()));
+        }
+        return hash;
+    }
+
+    private static boolean isCommutative(Node node){
+        return node instanceof Block.Xor || node instanceof Block.And || node instanceof Block.Or
+                || node instanceof Block.Def || node instanceof Interleaved || node instanceof MaybeInterleaved;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Computes the canonical hash of the subtree rooted at the given node.
+     *
+     * @param node the root of the subtree
+     * @param seed distinguishes independent hash functions, see {@link ProcessTreeKey}
+     * @param hashes if not null, caches the hash of every node of the subtree, nodes already in it are not
+     *               visited again, so the cache must not outlive a change of the tree
+     * @return the canonical hash of the subtree
+     */
+    public static long canonical(Node node, long seed, Map<Node, Long> hashes){
+        if (hashes != null){
+            Long cached = hashes.get(node);
+            if (cached != null){
+                return cached;
+            }
+        }
+
+        long[] childHashes = null;
+        if (node instanceof Block){
+            List<Node> children = ((Block) node).getChildren();
+            childHashes = new long[children.size()];
+            for (int i = 0; i < childHashes.length; i++){
+                childHashes[i] = canonical(children.get(i), seed, hashes);
+            }
+        }
+        long hash = combine(node, seed, childHashes);
+
+        if (hashes != null){
+            hashes.put(node, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Combines the canonical hashes of the children of a node, see {@link #canonical(Node, long, Map)}.
+     *
+     * @param node gives the type and the name, its children are ignored
+     * @param seed distinguishes independent hash functions
+     * @param childHashes the canonical hashes of the children in order, null for tasks, sorted in place
+     *                    under commutative operators
+     * @return the canonical hash of the node
+     */
+    public static long combine(Node node, long seed, long[] childHashes){
+        long hash = mix(getNodeHash(node) ^ seed);
+        if (node instanceof Block){
+            if (isCommutative(node)){
+                Arrays.sort(childHashes);
+            }
+            for (long childHash : childHashes){
+                hash = mix(hash * 31 + childHash);
+            }
+            hash = mix(hash ^ childHashes.length);
+        }
+        return hash;
+    }
+
+    //endregion
+}
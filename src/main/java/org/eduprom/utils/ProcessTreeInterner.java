@@ -0,0 +1,55 @@
+package org.eduprom.utils;
+
+import org.processmining.processtree.ProcessTree;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps equal trees (see {@link ProcessTreeKey}) to a single shared instance.
+ *
+ * Only immutable {@link PersistentProcessTree}s are interned, callers that need a ProM tree materialize a copy
+ * of their own with {@link PersistentProcessTree#toProcessTree()}.
+ */
+public class ProcessTreeInterner {
+
+    //region private members
+
+    private final Map<ProcessTreeKey, PersistentProcessTree> trees = new ConcurrentHashMap<>();
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * Interns an immutable snapshot of the given tree, later changes of the tree are not reflected.
+     *
+     * @return the instance equal to the given tree that was interned first, the snapshot if there is none
+     */
+    public PersistentProcessTree intern(ProcessTree tree){
+        return intern(PersistentProcessTree.of(tree));
+    }
+
+    /**
+     * @return the instance equal to the given tree that was interned first, the given tree if there is none
+     */
+    public PersistentProcessTree intern(PersistentProcessTree tree){
+        PersistentProcessTree existing = trees.putIfAbsent(ProcessTreeKey.of(tree), tree);
+        return existing != null ? existing : tree;
+    }
+
+    public boolean contains(ProcessTreeKey key){
+        return trees.containsKey(key);
+    }
+
+    public Collection<PersistentProcessTree> getTrees(){
+        return trees.values();
+    }
+
+    public int size(){
+        return trees.size();
+    }
+
+    //endregion
+}
@@ -0,0 +1,100 @@
+package org.eduprom.utils;
+
+import com.google.common.collect.MapMaker;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+
+import java.util.Map;
+
+/**
+ * Identity of a process tree up to the order of children under commutative operators.
+ *
+ * Combines two independent 64 bit canonical hashes (see {@link ProcessTreeHash#canonical}), which makes
+ * collisions negligible for the number of trees a search ever sees. Meant as the key of every map and
+ * cache of candidate trees instead of {@code ProcessTree.toString()}.
+ *
+ * The key of a ProM tree is computed once per tree instance, so a tree must not be modified once its key was
+ * taken.
+ */
+public final class ProcessTreeKey {
+
+    private static final long FIRST_SEED = 0x2545f4914f6cdd1dL;
+    private static final long SECOND_SEED = 0x9e3779b97f4a7c15L;
+    //weak identity keys, a tree that is no longer referenced drops its key
+    private static final Map<ProcessTree, ProcessTreeKey> treeKeys = new MapMaker().weakKeys().makeMap();
+
+    //region private members
+
+    private final long first;
+    private final long second;
+
+    //endregion
+
+    //region constructors
+
+    private ProcessTreeKey(long first, long second){
+        this.first = first;
+        this.second = second;
+    }
+
+    //endregion
+
+    //region public methods
+
+    /**
+     * @return the key of the subtree rooted at the given node, computed on every call, see {@link #of(ProcessTree)}
+     */
+    public static ProcessTreeKey of(Node node){
+        return new ProcessTreeKey(ProcessTreeHash.canonical(node, FIRST_SEED, null),
+                ProcessTreeHash.canonical(node, SECOND_SEED, null));
+    }
+
+    /**
+     * @return the key of the tree, memoized per tree instance
+     */
+    public static ProcessTreeKey of(ProcessTree tree){
+        return treeKeys.computeIfAbsent(tree, x -> of(x.getRoot()));
+    }
+
+    public static ProcessTreeKey of(PersistentProcessTree tree){
+        return tree.getRoot().getKey();
+    }
+
+    /**
+     * Combines the keys of the children of a node, equal to {@link #of(Node)} of the whole subtree.
+     *
+     * @param node gives the type and the name, its children are ignored
+     * @param children the keys of the children in order, null for tasks
+     */
+    static ProcessTreeKey of(Node node, ProcessTreeKey[] children){
+        long[] first = children != null ? new long[children.length] : null;
+        long[] second = children != null ? new long[children.length] : null;
+        for (int i = 0; children != null && i < children.length; i++){
+            first[i] = children[i].first;
+            second[i] = children[i].second;
+        }
+        return new ProcessTreeKey(ProcessTreeHash.combine(node, FIRST_SEED, first),
+                ProcessTreeHash.combine(node, SECOND_SEED, second));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ProcessTreeKey)){
+            return false;
+        }
+        ProcessTreeKey other = (ProcessTreeKey) o;
+        return first == other.first && second == other.second;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (first ^ (first >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", first, second);
+    }
+
+    //endregion
+}
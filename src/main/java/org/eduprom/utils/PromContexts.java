@@ -0,0 +1,39 @@
+package org.eduprom.utils;
+
+import org.processmining.contexts.cli.CLIContext;
+import org.processmining.contexts.cli.CLIPluginContext;
+
+/**
+ * The ProM context shared by the in-memory miners, created once on first use. Every miner gets a plugin context
+ * of its own, plugin contexts keep the progress and the children of a run and are not meant to be shared.
+ */
+public final class PromContexts {
+
+    //initialized on first access of the class, which the jvm synchronizes
+    private static class Holder {
+        private static final CLIContext context = new CLIContext();
+    }
+
+    //region constructors
+
+    private PromContexts(){
+
+    }
+
+    //endregion
+
+    //region public methods
+
+    public static CLIContext getContext(){
+        return Holder.context;
+    }
+
+    /**
+     * @return a new plugin context of the shared context, labeled with the given name
+     */
+    public static CLIPluginContext newPluginContext(String name){
+        return new CLIPluginContext(Holder.context, name);
+    }
+
+    //endregion
+}
@@ -0,0 +1,103 @@
+package org.eduprom;
+
+import org.deckfour.xes.classification.XEventNameClassifier;
+import org.deckfour.xes.extension.std.XConceptExtension;
+import org.deckfour.xes.factory.XFactory;
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.deckfour.xes.model.XEvent;
+import org.deckfour.xes.model.XLog;
+import org.deckfour.xes.model.XTrace;
+import org.eduprom.utils.PetrinetHelper;
+import org.eduprom.utils.PromContexts;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.processtree.impl.AbstractBlock;
+import org.processmining.processtree.impl.AbstractTask;
+import org.processmining.processtree.impl.ProcessTreeImpl;
+
+/**
+ * Small logs and process trees written inline, shared by the tests.
+ */
+public final class Fixtures {
+
+    private Fixtures(){
+
+    }
+
+    /**
+     * @param traces every trace as its activities separated by commas, an empty string for an empty trace
+     */
+    public static XLog log(String... traces){
+        XFactory factory = XFactoryRegistry.instance().currentDefault();
+        XLog log = factory.createLog();
+        for (String activities : traces){
+            XTrace trace = factory.createTrace();
+            for (String activity : activities.isEmpty() ? new String[0] : activities.split(",")){
+                XEvent event = factory.createEvent();
+                XConceptExtension.instance().assignName(event, activity);
+                trace.add(event);
+            }
+            log.add(trace);
+        }
+        return log;
+    }
+
+    public static Node task(String name){
+        return new AbstractTask.Manual(name);
+    }
+
+    public static Node tau(){
+        return new AbstractTask.Automatic("tau");
+    }
+
+    public static Block seq(Node... children){
+        return block(new AbstractBlock.Seq(""), children);
+    }
+
+    public static Block xor(Node... children){
+        return block(new AbstractBlock.Xor(""), children);
+    }
+
+    public static Block and(Node... children){
+        return block(new AbstractBlock.And(""), children);
+    }
+
+    public static Block loop(Node body, Node redo, Node exit){
+        return block(new AbstractBlock.XorLoop(""), body, redo, exit);
+    }
+
+    /**
+     * @return a new tree holding the given nodes, which must not belong to another tree
+     */
+    public static ProcessTree tree(Node root){
+        ProcessTree tree = new ProcessTreeImpl();
+        attach(root, tree);
+        tree.setRoot(root);
+        return tree;
+    }
+
+    /**
+     * @return a helper aligning on a plugin context of its own
+     */
+    public static PetrinetHelper helper(){
+        return new PetrinetHelper(PromContexts.newPluginContext("test"), new XEventNameClassifier());
+    }
+
+    private static Block block(Block block, Node... children){
+        for (Node child : children){
+            block.addChild(child);
+        }
+        return block;
+    }
+
+    private static void attach(Node node, ProcessTree tree){
+        node.setProcessTree(tree);
+        tree.addNode(node);
+        if (node instanceof Block){
+            for (Node child : ((Block) node).getChildren()){
+                attach(child, tree);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.eduprom.conformance;
+
+import org.deckfour.xes.factory.XFactoryRegistry;
+import org.eduprom.utils.PetrinetHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class OnlineConformanceCheckerTest {
+
+    private ProcessTree2Petrinet.PetrinetWithMarkings model;
+
+    @Before
+    public void setUp() throws Exception {
+        model = PetrinetHelper.ConvertToPetrinet(tree(seq(task("a"), xor(task("b"), task("c")), task("d"))));
+    }
+
+    @Test
+    public void fittingCaseKeepsFullFitness() {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 10, 0);
+
+        assertEquals(1.0, checker.process("1", "a"), 0.0);
+        assertEquals(1.0, checker.process("1", "c"), 0.0);
+        assertEquals(1.0, checker.process("1", "d"), 0.0);
+    }
+
+    @Test
+    public void unknownActivityIsALogMove() {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 10, 0);
+
+        checker.process("1", "a");
+        assertEquals(0.5, checker.process("1", "x"), 1e-9);
+    }
+
+    @Test
+    public void skippedActivityIsAModelMove() {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 10, 0);
+
+        checker.process("1", "a");
+        assertEquals(0.5, checker.process("1", "d"), 1e-9);
+    }
+
+    @Test
+    public void casesAreIndependent() {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 10, 0);
+
+        checker.process("1", "a");
+        checker.process("2", "x");
+        checker.process("1", "b");
+
+        assertEquals(1.0, checker.getFitness("1"), 0.0);
+        assertEquals(0.0, checker.getFitness("2"), 0.0);
+    }
+
+    @Test
+    public void leastRecentlyUpdatedCaseIsEvicted() {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 2, 0);
+
+        checker.process("1", "a");
+        checker.process("2", "a");
+        checker.process("1", "b");
+        checker.process("3", "a");
+
+        assertNull(checker.getFitness("2"));
+        assertEquals(new ArrayList<>(Arrays.asList("1", "3")), new ArrayList<>(checker.getFitness().keySet()));
+        assertEquals(1, checker.getEvictedCount());
+    }
+
+    @Test
+    public void idleCasesAreEvicted() throws Exception {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 10, 1);
+
+        checker.process("1", "a");
+        Thread.sleep(20);
+        checker.process("2", "a");
+
+        assertNull(checker.getFitness("1"));
+        assertEquals(1, checker.getCaseCount());
+    }
+
+    @Test
+    public void completedCaseIsNoLongerTracked() {
+        OnlineConformanceChecker checker = new OnlineConformanceChecker(model, 10, 0);
+
+        checker.process("1", "a");
+        assertEquals(1.0, checker.complete("1"), 0.0);
+        assertNull(checker.getFitness("1"));
+        assertEquals(0, checker.getCaseCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unnamedEventIsRejected() {
+        new OnlineConformanceChecker(model, 10, 0).process("1", XFactoryRegistry.instance().currentDefault().createEvent());
+    }
+}
@@ -0,0 +1,47 @@
+package org.eduprom.miners.adaptiveNoise.conformance;
+
+import org.eduprom.benchmarks.configuration.Weights;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConformanceInfoTest {
+
+    @Test
+    public void boundsOfAnUnassignedResultSpanTheWholeRange() {
+        ConformanceInfo info = new ConformanceInfo(new Weights(0.5, 0.3, 0.2));
+
+        assertEquals(1.0, info.maxValue(), 1e-12);
+        assertEquals(0.0, info.minValue(), 0.0);
+    }
+
+    @Test
+    public void boundsOfAPartialResultHoldThePsiOfAnyCompletion() {
+        ConformanceInfo info = new ConformanceInfo(new Weights(0.5, 0.3, 0.2));
+        info.setFitness(0.8);
+
+        assertEquals(0.4 + 0.3 + 0.2, info.maxValue(), 1e-12);
+        assertEquals(0.4, info.minValue(), 1e-12);
+        for (double precision = 0; precision <= 1; precision += 0.25){
+            for (double generalization = 0; generalization <= 1; generalization += 0.25){
+                ConformanceInfo complete = new ConformanceInfo(new Weights(0.5, 0.3, 0.2));
+                complete.setFitness(0.8);
+                complete.setPrecision(precision);
+                complete.setGeneralization(generalization);
+                assertTrue(complete.getPsi() <= info.maxValue() + 1e-12);
+                assertTrue(complete.getPsi() >= info.minValue() - 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void boundsOfACompleteResultAreItsPsi() {
+        ConformanceInfo info = new ConformanceInfo(new Weights(0.5, 0.3, 0.2));
+        info.setFitness(0.8);
+        info.setPrecision(0.6);
+        info.setGeneralization(0.1);
+
+        assertEquals(info.getPsi(), info.maxValue(), 1e-12);
+        assertEquals(info.getPsi(), info.minValue(), 1e-12);
+    }
+}
@@ -0,0 +1,123 @@
+package org.eduprom.miners.adaptiveNoise.conformance;
+
+import org.deckfour.xes.model.XLog;
+import org.eduprom.benchmarks.configuration.Weights;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class ConformanceStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ConformanceInfo info(double fitness, double precision, double generalization){
+        ConformanceInfo info = new ConformanceInfo(Weights.getUniform());
+        info.setFitness(fitness);
+        info.setPrecision(precision);
+        info.setGeneralization(generalization);
+        return info;
+    }
+
+    private String path() throws IOException {
+        return new File(folder.getRoot(), "store.bin").getPath();
+    }
+
+    @Test
+    public void resultsSurviveReopeningAndAreReweighted() throws Exception {
+        ConformanceStore store = ConformanceStore.open(path());
+        store.put("k", info(0.9, 0.6, 0.3));
+        store.close();
+
+        store = ConformanceStore.open(path());
+        ConformanceInfo stored = store.get("k", new Weights(1, 0, 0));
+        store.close();
+
+        assertNotNull(stored);
+        assertEquals(0.9, stored.getPsi(), 0.0);
+        assertEquals(0.6, stored.getPrecision(), 0.0);
+        assertEquals(0.3, stored.getGeneralization(), 0.0);
+    }
+
+    @Test
+    public void tornLastRecordIsDroppedAndTheStoreStaysAppendable() throws Exception {
+        ConformanceStore store = ConformanceStore.open(path());
+        store.put("first", info(1, 1, 1));
+        store.put("second", info(0.5, 0.5, 0.5));
+        store.close();
+
+        //a run killed while writing leaves the key and part of the measures
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(path(), true))) {
+            output.writeUTF("torn");
+            output.writeDouble(0.25);
+            output.writeShort(7);
+        }
+
+        store = ConformanceStore.open(path());
+        assertEquals(2, store.size());
+        assertNull(store.get("torn", Weights.getUniform()));
+        store.put("third", info(0.1, 0.2, 0.3));
+        store.close();
+
+        store = ConformanceStore.open(path());
+        assertEquals(3, store.size());
+        assertEquals(0.2, store.get("third", Weights.getUniform()).getPrecision(), 0.0);
+        assertEquals(0.5, store.get("second", Weights.getUniform()).getFitness(), 0.0);
+        store.close();
+    }
+
+    @Test
+    public void tornMagicStartsAnEmptyStore() throws Exception {
+        try (FileOutputStream output = new FileOutputStream(path())) {
+            output.write(new byte[] { 0x43, 0x53 });
+        }
+
+        ConformanceStore store = ConformanceStore.open(path());
+        assertEquals(0, store.size());
+        store.put("k", info(1, 1, 1));
+        store.close();
+
+        store = ConformanceStore.open(path());
+        assertEquals(1, store.size());
+        store.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void foreignFileIsRejected() throws Exception {
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(path()))) {
+            output.writeInt(42);
+        }
+        ConformanceStore.open(path());
+    }
+
+    @Test
+    public void incompleteResultsAreNotStored() throws Exception {
+        ConformanceStore store = ConformanceStore.open(path());
+        ConformanceInfo partial = new ConformanceInfo(Weights.getUniform());
+        partial.setFitness(1.0);
+        store.put("k", partial);
+
+        assertNull(store.get("k", Weights.getUniform()));
+        store.close();
+    }
+
+    @Test
+    public void keysSeparateKindsAndIgnoreCommutativeOrder() throws Exception {
+        ConformanceStore store = ConformanceStore.open(path());
+        XLog log = log("a,b", "b,a");
+
+        String key = store.getKey("ada", log, tree(and(task("a"), task("b"))));
+        assertEquals(key, store.getKey("ada", log("a,b", "b,a"), tree(and(task("b"), task("a")))));
+        assertNotEquals(key, store.getKey("train-test", log, log, tree(and(task("a"), task("b")))));
+        assertNotEquals(key, store.getKey("ada", log, tree(seq(task("a"), task("b")))));
+        store.close();
+    }
+}
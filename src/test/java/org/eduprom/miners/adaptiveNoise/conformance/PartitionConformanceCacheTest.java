@@ -0,0 +1,85 @@
+package org.eduprom.miners.adaptiveNoise.conformance;
+
+import org.deckfour.xes.model.XLog;
+import org.eduprom.benchmarks.configuration.Weights;
+import org.eduprom.miners.adaptiveNoise.IntermediateMiners.MiningResult;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.miners.adaptiveNoise.filters.FilterResult;
+import org.eduprom.partitioning.Partitioning;
+import org.junit.Before;
+import org.junit.Test;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class PartitionConformanceCacheTest {
+
+    private PartitionConformanceCache cache;
+    private Partitioning.PartitionInfo root;
+    private Partitioning.PartitionInfo choice;
+
+    @Before
+    public void setUp() {
+        XLog log = log("a,c", "b,c", "a,c", "b,c");
+        XLog choiceLog = log("a", "b", "a", "b");
+        Block choiceNode = xor(task("a"), task("b"));
+        Block rootNode = seq(choiceNode, task("c"));
+        ProcessTree tree = tree(rootNode);
+
+        Partitioning partitioning = new Partitioning(null, log);
+        partitioning.setProcessTree(tree);
+        //children first, as the splitters add them
+        partitioning.add(choiceNode, choiceLog);
+        partitioning.add(rootNode, log);
+        root = partitioning.getPartitions().get(rootNode.getID());
+        choice = partitioning.getPartitions().get(choiceNode.getID());
+
+        cache = new PartitionConformanceCache(helper(), Weights.getUniform());
+    }
+
+    private Change change(Partitioning.PartitionInfo partitionInfo, Node subtree) {
+        Change change = new Change(partitionInfo, partitionInfo.getLog(), null, null);
+        change.setMiningResult(new MiningResult(tree(subtree), new FilterResult(partitionInfo.getLog(), 0, partitionInfo.getBits())));
+        return change;
+    }
+
+    @Test
+    public void equalSubtreesAreAlignedOnce() throws Exception {
+        ConformanceInfo first = cache.get(choice, tree(xor(task("a"), task("b"))));
+        ConformanceInfo second = cache.get(choice, tree(xor(task("b"), task("a"))));
+
+        assertSame(first, second);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void sameSubtreeOnAnotherPartitionIsNotShared() throws Exception {
+        cache.get(choice, tree(xor(task("a"), task("b"))));
+        cache.get(root, tree(xor(task("a"), task("b"))));
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void replacingBySameSubtreeGainsNothing() throws Exception {
+        assertEquals(0.0, cache.estimateGain(change(choice, xor(task("b"), task("a"))), root), 0.0);
+    }
+
+    @Test
+    public void gainIsWeightedByTheShareOfTheLog() throws Exception {
+        Change change = change(choice, task("a"));
+        double replaced = cache.get(choice, change.getProcessTree()).getPsi();
+        double baseline = cache.getBaseline(choice).getPsi();
+
+        double gain = cache.estimateGain(change, root);
+
+        //the sublog of the choice holds 4 of the 8 events
+        assertEquals(0.5 * (replaced - baseline), gain, 1e-9);
+        assertTrue("dropping an activity of the sublog loses fitness", gain < 0);
+    }
+}
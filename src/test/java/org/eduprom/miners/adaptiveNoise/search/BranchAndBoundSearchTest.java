@@ -0,0 +1,116 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import static org.junit.Assert.*;
+
+public class BranchAndBoundSearchTest {
+
+    /**
+     * Evaluates candidates with a given psi and keeps the best one.
+     */
+    private static class Evaluator implements ICandidateEvaluator {
+        private final ToDoubleFunction<List<Change>> psi;
+        private double incumbent = Double.NEGATIVE_INFINITY;
+        private List<Change> best;
+
+        private Evaluator(ToDoubleFunction<List<Change>> psi){
+            this.psi = psi;
+        }
+
+        @Override
+        public double evaluate(List<Change> changes) {
+            double value = psi.applyAsDouble(changes);
+            if (value > incumbent){
+                incumbent = value;
+                best = new ArrayList<>(changes);
+            }
+            return value;
+        }
+
+        @Override
+        public double getIncumbent() {
+            return incumbent;
+        }
+    }
+
+    private List<Change> changes;
+    private Map<Change, Double> effects;
+
+    @Before
+    public void setUp() {
+        changes = SearchFixtures.getChanges(0.1f, 0.3f);
+        effects = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++){
+            effects.put(changes.get(i), ((i * 3) % 8 - 4) * 0.01);
+        }
+    }
+
+    private double getAdditivePsi(List<Change> set){
+        return 0.5 + set.stream().mapToDouble(x -> effects.get(x)).sum();
+    }
+
+    private double getOptimum(ToDoubleFunction<List<Change>> psi, int maxChanges){
+        return SearchFixtures.getValidSets(changes, maxChanges).stream().mapToDouble(psi).max().getAsDouble();
+    }
+
+    @Test
+    public void infiniteSlackFindsTheOptimumDespiteMisleadingGains() throws Exception {
+        //psi is not additive: three changes together are worth more than their effects
+        ToDoubleFunction<List<Change>> psi = x -> getAdditivePsi(x) + (x.size() == 3 ? 0.1 : 0);
+        //and the estimates point the wrong way
+        Map<Change, Double> gains = new HashMap<>();
+        effects.forEach((change, effect) -> gains.put(change, -effect));
+        Evaluator evaluator = new Evaluator(psi);
+
+        BranchAndBoundSearch search = new BranchAndBoundSearch(changes, gains, 3, Double.POSITIVE_INFINITY, evaluator);
+        search.search();
+
+        assertEquals(getOptimum(psi, 3), evaluator.getIncumbent(), 1e-12);
+        assertEquals(3, evaluator.best.size());
+        assertEquals(SearchFixtures.getValidSets(changes, 3).size(), search.getExplored());
+        assertEquals(0, search.getPruned());
+    }
+
+    @Test
+    public void exactGainsArePrunedWithoutLosingTheOptimum() throws Exception {
+        Evaluator evaluator = new Evaluator(this::getAdditivePsi);
+
+        //with an additive psi the gains are admissible bounds, so no slack is needed
+        BranchAndBoundSearch search = new BranchAndBoundSearch(changes, effects, 3, 0, evaluator);
+        search.search();
+
+        assertEquals(getOptimum(this::getAdditivePsi, 3), evaluator.getIncumbent(), 1e-12);
+        assertTrue(search.getPruned() > 0);
+        assertTrue(search.getExplored() < SearchFixtures.getValidSets(changes, 3).size());
+    }
+
+    @Test
+    public void evaluatedSetsAreValidAndDistinct() throws Exception {
+        List<List<Change>> evaluated = new ArrayList<>();
+        Evaluator evaluator = new Evaluator(x -> {
+            evaluated.add(new ArrayList<>(x));
+            return getAdditivePsi(x);
+        });
+
+        new BranchAndBoundSearch(changes, effects, 2, Double.POSITIVE_INFINITY, evaluator).search();
+
+        assertTrue(evaluated.get(0).isEmpty());
+        HashSet<HashSet<Change>> distinct = new HashSet<>();
+        for (List<Change> set : evaluated){
+            assertTrue(set.size() <= 2);
+            assertTrue("related partitions are combined", SearchFixtures.isValid(set));
+            assertTrue("set evaluated twice", distinct.add(new HashSet<>(set)));
+        }
+        assertEquals(SearchFixtures.getValidSets(changes, 2).size(), distinct.size());
+    }
+}
@@ -0,0 +1,97 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChangeSetEnumeratorTest {
+
+    private List<Change> changes;
+    private Map<Change, Double> gains;
+
+    @Before
+    public void setUp() {
+        changes = SearchFixtures.getChanges(0.1f, 0.3f);
+        gains = new HashMap<>();
+        for (int i = 0; i < changes.size(); i++){
+            //positive and negative gains in no particular order
+            gains.put(changes.get(i), ((i * 5) % 8 - 3) * 0.01);
+        }
+    }
+
+    private double getGain(List<Change> set){
+        return set.stream().mapToDouble(x -> gains.get(x)).sum();
+    }
+
+    private List<List<Change>> enumerate(ChangeSetEnumerator enumerator){
+        List<List<Change>> sets = new ArrayList<>();
+        while (enumerator.hasNext()){
+            sets.add(enumerator.next());
+        }
+        return sets;
+    }
+
+    @Test
+    public void baselineComesFirst() {
+        ChangeSetEnumerator enumerator = new ChangeSetEnumerator(changes, gains, 3, 0, 0);
+
+        assertTrue(enumerator.next().isEmpty());
+        assertEquals(0, enumerator.getEmitted());
+    }
+
+    @Test
+    public void everyValidSetIsEmittedOnceInDecreasingGain() {
+        List<List<Change>> sets = enumerate(new ChangeSetEnumerator(changes, gains, 3, 0, 0));
+
+        Set<Set<Change>> distinct = new HashSet<>();
+        //the baseline aside, sets come best first
+        for (int i = 2; i < sets.size(); i++){
+            assertTrue(String.format("set %d gains more than the previous one", i),
+                    getGain(sets.get(i)) <= getGain(sets.get(i - 1)) + 1e-12);
+        }
+        for (List<Change> set : sets){
+            assertTrue(set.size() <= 3);
+            assertTrue("related partitions are combined", SearchFixtures.isValid(set));
+            assertTrue("set emitted twice", distinct.add(new HashSet<>(set)));
+        }
+
+        Set<Set<Change>> expected = new HashSet<>();
+        for (List<Change> set : SearchFixtures.getValidSets(changes, 3)){
+            expected.add(new HashSet<>(set));
+        }
+        assertEquals(expected, distinct);
+    }
+
+    @Test
+    public void maxChangesLimitsTheSets() {
+        List<List<Change>> sets = enumerate(new ChangeSetEnumerator(changes, gains, 1, 0, 0));
+
+        assertEquals(changes.size() + 1, sets.size());
+        for (List<Change> set : sets){
+            assertTrue(set.size() <= 1);
+        }
+    }
+
+    @Test
+    public void candidateBudgetTruncatesTheEnumeration() {
+        ChangeSetEnumerator enumerator = new ChangeSetEnumerator(changes, gains, 3, 4, 0);
+        List<List<Change>> sets = enumerate(enumerator);
+
+        //the baseline does not count against the budget
+        assertEquals(5, sets.size());
+        assertEquals(4, enumerator.getEmitted());
+        assertTrue(enumerator.isTruncated());
+
+        List<List<Change>> all = enumerate(new ChangeSetEnumerator(changes, gains, 3, 0, 0));
+        assertEquals(all.subList(0, 5), sets);
+    }
+}
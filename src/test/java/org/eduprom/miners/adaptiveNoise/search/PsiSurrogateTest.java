@@ -0,0 +1,96 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.benchmarks.configuration.Weights;
+import org.eduprom.miners.adaptiveNoise.IntermediateMiners.MiningResult;
+import org.eduprom.miners.adaptiveNoise.conformance.ConformanceInfo;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.miners.adaptiveNoise.entities.TreeChanges;
+import org.eduprom.miners.adaptiveNoise.filters.FilterResult;
+import org.eduprom.partitioning.Partitioning;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class PsiSurrogateTest {
+
+    private List<TreeChanges> candidates;
+    private Map<Change, Double> gains;
+
+    @Before
+    public void setUp() throws Exception {
+        Partitioning partitioning = SearchFixtures.getPartitioning();
+        List<Change> changes = SearchFixtures.getChanges(partitioning, 0.1f, 0.3f);
+        gains = new HashMap<>();
+        for (Change change : changes){
+            //the higher threshold mines a single activity and filters out half of the sublog
+            boolean filtered = change.getMiner().getNoiseThreshold() > 0.2;
+            Partitioning.PartitionInfo partitionInfo = change.getPartitionInfo();
+            change.setMiningResult(new MiningResult(tree(filtered ? task("a") : and(task("a"), task("b"))),
+                    new FilterResult(partitionInfo.getLog(), filtered ? partitionInfo.getBits() / 2 : 0, partitionInfo.getBits())));
+            gains.put(change, filtered ? -0.02 : 0.01);
+        }
+
+        candidates = new ArrayList<>();
+        for (List<Change> set : SearchFixtures.getValidSets(changes, 3)){
+            TreeChanges candidate = new TreeChanges(partitioning, new ConformanceInfo(Weights.getUniform()));
+            for (Change change : set){
+                assertTrue(candidate.Add(change));
+            }
+            candidates.add(candidate);
+        }
+    }
+
+    private static double getPsi(TreeChanges candidate){
+        return 0.6 + 0.05 * candidate.getNumberOfChanges() - 0.2 * candidate.getBitsRemoved() / Math.max(1, candidate.getBits());
+    }
+
+    @Test
+    public void nothingIsPredictedBeforeTheFirstObservation() {
+        PsiSurrogate surrogate = new PsiSurrogate(gains);
+
+        assertTrue(Double.isNaN(surrogate.predict(candidates.get(0))));
+        assertTrue(Double.isNaN(surrogate.getMeanAbsoluteError()));
+    }
+
+    @Test
+    public void linearPsiIsLearned() {
+        PsiSurrogate surrogate = new PsiSurrogate(gains);
+        for (TreeChanges candidate : candidates){
+            surrogate.observe(candidate, getPsi(candidate));
+        }
+
+        assertEquals(candidates.size(), surrogate.getObservations());
+        assertFalse(Double.isNaN(surrogate.getMeanAbsoluteError()));
+        for (TreeChanges candidate : candidates){
+            assertEquals(getPsi(candidate), surrogate.predict(candidate), 1e-2);
+        }
+    }
+
+    @Test
+    public void boundsAreLearnedButNotScored() {
+        PsiSurrogate surrogate = new PsiSurrogate(gains);
+        TreeChanges first = candidates.get(0);
+        TreeChanges second = candidates.get(candidates.size() - 1);
+
+        surrogate.observe(first, 0.5);
+        double before = surrogate.predict(second);
+        surrogate.observeBound(second, 0.9);
+
+        assertEquals(2, surrogate.getObservations());
+        //only the exact psi observed after a prediction counts
+        assertTrue(Double.isNaN(surrogate.getMeanAbsoluteError()));
+        //an upper bound pulls the prediction up
+        assertTrue(surrogate.predict(second) > before);
+
+        double predicted = surrogate.predict(second);
+        surrogate.observe(second, 0.4);
+        assertEquals(Math.abs(predicted - 0.4), surrogate.getMeanAbsoluteError(), 1e-12);
+    }
+}
@@ -0,0 +1,89 @@
+package org.eduprom.miners.adaptiveNoise.search;
+
+import org.eduprom.miners.adaptiveNoise.IntermediateMiners.NoiseInductiveMiner;
+import org.eduprom.miners.adaptiveNoise.entities.Change;
+import org.eduprom.partitioning.Partitioning;
+import org.processmining.processtree.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.eduprom.Fixtures.*;
+
+/**
+ * Change options on the partitions of {@code ->(x(a,b), x(c,d), x(e,f))}, and the sets of them a search may
+ * combine, computed by brute force.
+ */
+final class SearchFixtures {
+
+    private SearchFixtures(){
+
+    }
+
+    /**
+     * @return the partitioning of the root and its three choices
+     */
+    static Partitioning getPartitioning(){
+        Block first = xor(task("a"), task("b"));
+        Block second = xor(task("c"), task("d"));
+        Block third = xor(task("e"), task("f"));
+        Block root = seq(first, second, third);
+
+        Partitioning partitioning = new Partitioning(null, log("a,c,e", "b,d,f"));
+        partitioning.setProcessTree(tree(root));
+        //children first, as the splitters add them
+        partitioning.add(first, log("a", "b"));
+        partitioning.add(second, log("c", "d"));
+        partitioning.add(third, log("e", "f"));
+        partitioning.add(root, log("a,c,e", "b,d,f"));
+        return partitioning;
+    }
+
+    /**
+     * @return one change per partition and noise threshold
+     */
+    static List<Change> getChanges(Partitioning partitioning, float... thresholds){
+        List<Change> changes = new ArrayList<>();
+        for (Partitioning.PartitionInfo partitionInfo : partitioning.getPartitions().values()){
+            for (float threshold : thresholds){
+                changes.add(new Change(partitionInfo, partitionInfo.getLog(),
+                        new NoiseInductiveMiner(threshold, false), null));
+            }
+        }
+        return changes;
+    }
+
+    static List<Change> getChanges(float... thresholds){
+        return getChanges(getPartitioning(), thresholds);
+    }
+
+    /**
+     * @return every set of at most {@code maxChanges} pairwise unrelated changes, the empty set included
+     */
+    static List<List<Change>> getValidSets(List<Change> changes, int maxChanges){
+        List<List<Change>> sets = new ArrayList<>();
+        for (int mask = 0; mask < 1 << changes.size(); mask++){
+            List<Change> set = new ArrayList<>();
+            for (int i = 0; i < changes.size(); i++){
+                if ((mask & 1 << i) != 0){
+                    set.add(changes.get(i));
+                }
+            }
+            if (set.size() <= maxChanges && isValid(set)){
+                sets.add(set);
+            }
+        }
+        return sets;
+    }
+
+    static boolean isValid(List<Change> set){
+        for (int i = 0; i < set.size(); i++){
+            for (int j = i + 1; j < set.size(); j++){
+                if (set.get(i).getPartitionInfo().isRalated(set.get(j).getPartitionInfo())){
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package org.eduprom.miners.synthesis.cutsMiners;
+
+import org.deckfour.xes.classification.XEventNameClassifier;
+import org.eduprom.miners.synthesis.entities.ProcessTreeCuts;
+import org.eduprom.utils.ProcessTreeKey;
+import org.junit.Test;
+import org.processmining.plugins.InductiveMiner.mining.MinerState;
+import org.processmining.plugins.InductiveMiner.mining.MiningParametersIM;
+import org.processmining.plugins.InductiveMiner.mining.logs.IMLog;
+import org.processmining.plugins.InductiveMiner.mining.logs.IMLogImpl;
+import org.processmining.processtree.Node;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class InductiveCutMinerTest {
+
+    private static ProcessTreeKey mine(int forkMinTraces){
+        IMLog log = new IMLogImpl(log("a,b,c,e", "a,c,b,e", "a,d,e", "a,b,c,e", "a,d,e", "a,c,b,e"),
+                new XEventNameClassifier());
+        MinerState minerState = new MinerState(new MiningParametersIM(), () -> false);
+        try {
+            Node root = InductiveCutMiner.mineNode(log, new ProcessTreeCuts(), minerState, forkMinTraces);
+            return ProcessTreeKey.of(root);
+        } finally {
+            minerState.shutdownThreadPools();
+        }
+    }
+
+    @Test
+    public void forkedSublogsMineTheSameTree() {
+        //every sublog forked, then none
+        assertEquals(mine(1), mine(Integer.MAX_VALUE));
+    }
+}
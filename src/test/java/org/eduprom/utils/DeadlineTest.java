@@ -0,0 +1,86 @@
+package org.eduprom.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeadlineTest {
+
+    @Test
+    public void deadlineWithoutBudgetIsNeverCancelledImplicitly() throws Exception {
+        try (Deadline deadline = Deadline.none()) {
+            Thread.sleep(20);
+            assertFalse(deadline.isCancelled());
+            assertNull(deadline.getReason());
+            assertEquals(Long.MAX_VALUE, deadline.getRemaining());
+        }
+    }
+
+    @Test
+    public void timeBudgetCancelsAndFiresTheListeners() throws Exception {
+        CountDownLatch fired = new CountDownLatch(1);
+        try (Deadline deadline = new Deadline(10, 0)) {
+            deadline.onCancel(fired::countDown);
+
+            //fired by the timer, nobody polls the deadline
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(deadline.isCancelled());
+            assertTrue(deadline.getReason().contains("time budget"));
+            assertEquals(0, deadline.getRemaining());
+        }
+    }
+
+    @Test
+    public void listenerRunsOnce() {
+        AtomicInteger runs = new AtomicInteger();
+        Deadline deadline = Deadline.none();
+        deadline.onCancel(runs::incrementAndGet);
+
+        deadline.cancel();
+        deadline.cancel();
+
+        assertEquals(1, runs.get());
+        assertEquals("cancelled", deadline.getReason());
+    }
+
+    @Test
+    public void listenerOfACancelledDeadlineRunsImmediately() {
+        AtomicInteger runs = new AtomicInteger();
+        Deadline deadline = Deadline.none();
+        deadline.cancel();
+
+        deadline.onCancel(runs::incrementAndGet);
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void closedRegistrationIsNotFired() {
+        AtomicInteger runs = new AtomicInteger();
+        Deadline deadline = Deadline.none();
+
+        try (Deadline.Registration registration = deadline.onCancel(runs::incrementAndGet)) {
+            assertEquals(0, runs.get());
+        }
+        deadline.cancel();
+
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void closingDoesNotCancel() throws Exception {
+        Deadline deadline = new Deadline(10, 0);
+        deadline.close();
+        Thread.sleep(30);
+
+        //the budget is still checked when polled
+        assertTrue(deadline.isCancelled());
+        deadline = new Deadline(60000, 0);
+        deadline.close();
+        assertFalse(deadline.isCancelled());
+    }
+}
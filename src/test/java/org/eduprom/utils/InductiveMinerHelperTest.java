@@ -0,0 +1,73 @@
+package org.eduprom.utils;
+
+import org.deckfour.xes.classification.XEventNameClassifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.processmining.plugins.InductiveMiner.mining.IMLogInfo;
+import org.processmining.plugins.InductiveMiner.mining.MinerState;
+import org.processmining.plugins.InductiveMiner.mining.MiningParametersIMf;
+import org.processmining.plugins.InductiveMiner.mining.cuts.Cut;
+import org.processmining.plugins.InductiveMiner.mining.logSplitter.LogSplitter;
+import org.processmining.plugins.InductiveMiner.mining.logs.IMLog;
+import org.processmining.plugins.InductiveMiner.mining.logs.IMLogImpl;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.processtree.impl.ProcessTreeImpl;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class InductiveMinerHelperTest {
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private IMLog log;
+    private IMLogInfo logInfo;
+    private MinerState minerState;
+
+    @Before
+    public void setUp() {
+        MiningParametersIMf parameters = new MiningParametersIMf();
+        log = new IMLogImpl(log("a,b", "a,b", "a,b"), new XEventNameClassifier());
+        logInfo = parameters.getLog2LogInfo().createLogInfo(log);
+        minerState = new MinerState(parameters, cancelled::get);
+    }
+
+    @After
+    public void tearDown() {
+        minerState.shutdownThreadPools();
+    }
+
+    @Test
+    public void stepsOfALiveStateMineTheNode() {
+        ProcessTree tree = new ProcessTreeImpl();
+
+        assertNull(InductiveMinerHelper.findBaseCases(log, logInfo, tree, minerState));
+        Cut cut = InductiveMinerHelper.findCut(log, logInfo, minerState);
+        assertTrue(cut.isValid());
+        assertEquals(Cut.Operator.sequence, cut.getOperator());
+
+        LogSplitter.LogSplitResult result = InductiveMinerHelper.splitLog(log, logInfo, cut, minerState);
+        assertEquals(2, result.sublogs.size());
+    }
+
+    @Test
+    public void stepsOfACancelledStateReturnNull() {
+        ProcessTree tree = new ProcessTreeImpl();
+        cancelled.set(true);
+
+        assertNull(InductiveMinerHelper.findBaseCases(log, logInfo, tree, minerState));
+        assertNull(InductiveMinerHelper.findCut(log, logInfo, minerState));
+        assertNull(InductiveMinerHelper.findFallThrough(log, logInfo, tree, minerState));
+    }
+
+    @Test
+    public void splitOfACancelledStateIsDropped() {
+        Cut cut = InductiveMinerHelper.findCut(log, logInfo, minerState);
+        cancelled.set(true);
+
+        assertNull(InductiveMinerHelper.splitLog(log, logInfo, cut, minerState));
+        assertEquals(0, minerState.discardedEvents.size());
+    }
+}
@@ -0,0 +1,81 @@
+package org.eduprom.utils;
+
+import org.eduprom.exceptions.MiningException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+public class MiningPoolTest {
+
+    private static final List<Integer> items = Arrays.asList(5, 1, 4, 2, 3);
+
+    @Test
+    public void mapKeepsTheOrderOfTheItems() throws Exception {
+        List<Integer> results = MiningPool.map(items, x -> {
+            //later items finish first
+            Thread.sleep(x * 5);
+            return x * 10;
+        });
+
+        assertEquals(Arrays.asList(50, 10, 40, 20, 30), results);
+    }
+
+    @Test
+    public void mapThrowsTheFirstFailureInItemOrder() {
+        try {
+            MiningPool.map(items, x -> {
+                if (x == 4) throw new MiningException("four");
+                if (x == 2) throw new IllegalStateException("two");
+                return x;
+            });
+            fail();
+        } catch (MiningException e) {
+            assertEquals("four", e.getMessage());
+        }
+    }
+
+    @Test
+    public void forkRunsRejectedItemsInTheCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        Set<Integer> inline = ConcurrentHashMap.newKeySet();
+
+        List<Integer> results = MiningPool.fork(items, x -> x > 2, x -> {
+            if (Thread.currentThread() == caller){
+                inline.add(x);
+            }
+            return -x;
+        });
+
+        assertEquals(Arrays.asList(-5, -1, -4, -2, -3), results);
+        assertTrue(inline.containsAll(Arrays.asList(1, 2)));
+        assertFalse(inline.contains(5));
+    }
+
+    @Test
+    public void forkWrapsCheckedFailures() {
+        try {
+            MiningPool.fork(items, x -> x % 2 == 0, x -> {
+                if (x == 1) throw new IOException("one");
+                return x;
+            });
+            fail();
+        } catch (MiningException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void nestedForksComplete() throws Exception {
+        List<Integer> results = MiningPool.fork(items, x -> true,
+                x -> MiningPool.fork(Collections.nCopies(x, x), y -> true, y -> y).stream().mapToInt(y -> y).sum());
+
+        assertEquals(Arrays.asList(25, 1, 16, 4, 9), results);
+    }
+}
@@ -0,0 +1,74 @@
+package org.eduprom.utils;
+
+import org.eduprom.exceptions.MiningCancelledException;
+import org.junit.Test;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class PetrinetHelperTest {
+
+    private static List<String> getLabels(ProcessTree2Petrinet.PetrinetWithMarkings net){
+        List<String> labels = new ArrayList<>();
+        for (Transition transition : net.petrinet.getTransitions()){
+            labels.add(transition.isInvisible() ? "tau" : transition.getLabel());
+        }
+        Collections.sort(labels);
+        return labels;
+    }
+
+    @Test
+    public void commutativelyEqualTreesShareOneConversion() throws Exception {
+        long hits = PetrinetHelper.getConversionStats().hitCount();
+
+        ProcessTree2Petrinet.PetrinetWithMarkings first =
+                PetrinetHelper.ConvertToPetrinetCached(tree(seq(task("x"), and(task("y"), task("z")))));
+        ProcessTree2Petrinet.PetrinetWithMarkings second =
+                PetrinetHelper.ConvertToPetrinetCached(tree(seq(task("x"), and(task("z"), task("y")))));
+
+        assertSame(first, second);
+        assertEquals(hits + 1, PetrinetHelper.getConversionStats().hitCount());
+    }
+
+    @Test
+    public void differentOrderUnderASequenceIsConvertedApart() throws Exception {
+        ProcessTree2Petrinet.PetrinetWithMarkings first =
+                PetrinetHelper.ConvertToPetrinetCached(tree(seq(task("p"), task("q"))));
+        ProcessTree2Petrinet.PetrinetWithMarkings second =
+                PetrinetHelper.ConvertToPetrinetCached(tree(seq(task("q"), task("p"))));
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void cachedConversionIsTheConversionOfProm() throws Exception {
+        ProcessTree tree = tree(seq(task("a"), xor(task("b"), tau()), loop(task("c"), task("d"), tau())));
+
+        ProcessTree2Petrinet.PetrinetWithMarkings expected = PetrinetHelper.ConvertToPetrinet(tree);
+        ProcessTree2Petrinet.PetrinetWithMarkings cached = PetrinetHelper.ConvertToPetrinetCached(tree);
+
+        assertEquals(expected.petrinet.getPlaces().size(), cached.petrinet.getPlaces().size());
+        assertEquals(expected.petrinet.getEdges().size(), cached.petrinet.getEdges().size());
+        assertEquals(getLabels(expected), getLabels(cached));
+        assertEquals(expected.initialMarking.size(), cached.initialMarking.size());
+        assertEquals(expected.finalMarking.size(), cached.finalMarking.size());
+    }
+
+    @Test(expected = MiningCancelledException.class)
+    public void alignmentIsSkippedOnceTheDeadlineIsCancelled() throws Exception {
+        ProcessTree2Petrinet.PetrinetWithMarkings net = PetrinetHelper.ConvertToPetrinet(tree(seq(task("a"), task("b"))));
+        PetrinetHelper helper = helper();
+        Deadline deadline = Deadline.none();
+        deadline.cancel();
+        helper.setDeadline(deadline);
+
+        helper.getCompleteAlignment(log("a,b"), net.petrinet, net.initialMarking, net.finalMarking);
+    }
+}
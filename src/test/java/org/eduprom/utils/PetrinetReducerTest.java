@@ -0,0 +1,75 @@
+package org.eduprom.utils;
+
+import org.deckfour.xes.model.XLog;
+import org.junit.Test;
+import org.processmining.models.graphbased.directed.petrinet.elements.Transition;
+import org.processmining.plugins.petrinet.replayresult.PNRepResult;
+import org.processmining.plugins.petrinet.replayresult.StepTypes;
+import org.processmining.plugins.replayer.replayresult.SyncReplayResult;
+import org.processmining.processtree.ProcessTree;
+import org.processmining.ptconversions.pn.ProcessTree2Petrinet;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class PetrinetReducerTest {
+
+    private static double getInfo(PNRepResult alignment, String key){
+        return Double.parseDouble(alignment.getInfo().get(key).toString());
+    }
+
+    private static void assertSameConformance(ProcessTree tree, XLog log) throws Exception {
+        ProcessTree2Petrinet.PetrinetWithMarkings net = PetrinetHelper.ConvertToPetrinet(tree);
+
+        PetrinetHelper helper = helper();
+        PNRepResult plain = helper.getAlignment(log, net.petrinet, net.initialMarking, net.finalMarking);
+        helper.setReduceBeforeAlignment(true);
+        PNRepResult reduced = helper.getAlignment(log, net.petrinet, net.initialMarking, net.finalMarking);
+
+        assertEquals(getInfo(plain, PNRepResult.TRACEFITNESS), getInfo(reduced, PNRepResult.TRACEFITNESS), 1e-9);
+        assertEquals(getInfo(plain, PNRepResult.RAWFITNESSCOST), getInfo(reduced, PNRepResult.RAWFITNESSCOST), 1e-9);
+
+        //the restored alignment only moves on the transitions of the given net
+        for (SyncReplayResult rep : reduced){
+            for (int i = 0; i < rep.getNodeInstance().size(); i++){
+                if (rep.getStepTypes().get(i) != StepTypes.L){
+                    Object node = rep.getNodeInstance().get(i);
+                    assertTrue(node instanceof Transition);
+                    assertTrue(net.petrinet.getTransitions().contains(node));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reductionIsOffByDefault() {
+        assertFalse(helper().isReduceBeforeAlignment());
+    }
+
+    @Test
+    public void silentTransitionInSeriesIsRemoved() throws Exception {
+        ProcessTree2Petrinet.PetrinetWithMarkings net = PetrinetHelper.ConvertToPetrinet(tree(seq(task("a"), tau(), task("b"))));
+
+        PetrinetReducer.ReducedPetrinet reduced = new PetrinetReducer().reduce(net.petrinet, net.initialMarking, net.finalMarking);
+
+        assertTrue(reduced.getRemoved() > 0);
+        assertEquals(net.petrinet.getTransitions().size() - reduced.getRemoved(), reduced.getPetrinet().getTransitions().size());
+    }
+
+    @Test
+    public void reducedAlignmentOfASequenceMatchesTheOriginal() throws Exception {
+        assertSameConformance(tree(seq(task("a"), tau(), task("b"))), log("a,b", "b,a", "a", "a,b,b"));
+    }
+
+    @Test
+    public void reducedAlignmentOfSkipsAndLoopsMatchesTheOriginal() throws Exception {
+        assertSameConformance(tree(seq(task("a"), xor(task("b"), tau()), loop(task("c"), task("d"), tau()))),
+                log("a,c", "a,b,c,d,c", "c,a", "a,b,b,c", ""));
+    }
+
+    @Test
+    public void reducedAlignmentOfConcurrencyMatchesTheOriginal() throws Exception {
+        assertSameConformance(tree(seq(and(task("a"), seq(task("b"), tau())), task("c"))),
+                log("a,b,c", "b,a,c", "a,c", "c,b,a"));
+    }
+}
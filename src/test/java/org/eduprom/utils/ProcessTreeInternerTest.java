@@ -0,0 +1,44 @@
+package org.eduprom.utils;
+
+import org.junit.Test;
+import org.processmining.processtree.Block;
+import org.processmining.processtree.Node;
+import org.processmining.processtree.ProcessTree;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class ProcessTreeInternerTest {
+
+    @Test
+    public void equalTreesShareTheFirstInstance() {
+        ProcessTreeInterner interner = new ProcessTreeInterner();
+
+        PersistentProcessTree first = interner.intern(tree(and(task("a"), task("b"))));
+        PersistentProcessTree second = interner.intern(tree(and(task("b"), task("a"))));
+        PersistentProcessTree other = interner.intern(tree(seq(task("a"), task("b"))));
+
+        assertSame(first, second);
+        assertNotSame(first, other);
+        assertEquals(2, interner.size());
+        assertTrue(interner.contains(ProcessTreeKey.of(tree(and(task("a"), task("b"))))));
+    }
+
+    @Test
+    public void internedSnapshotIgnoresLaterChanges() {
+        ProcessTreeInterner interner = new ProcessTreeInterner();
+        Block choice = xor(task("a"), task("b"));
+        ProcessTree tree = tree(seq(choice, task("c")));
+
+        PersistentProcessTree snapshot = interner.intern(tree);
+        Node added = task("d");
+        choice.addChild(added);
+        added.setProcessTree(tree);
+        tree.addNode(added);
+
+        ProcessTreeKey original = ProcessTreeKey.of(tree(seq(xor(task("a"), task("b")), task("c"))));
+        assertEquals(original, ProcessTreeKey.of(snapshot));
+        assertNotEquals(original, ProcessTreeKey.of(tree.getRoot()));
+        assertSame(snapshot, interner.getTrees().iterator().next());
+    }
+}
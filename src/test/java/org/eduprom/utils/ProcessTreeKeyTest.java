@@ -0,0 +1,47 @@
+package org.eduprom.utils;
+
+import org.junit.Test;
+import org.processmining.processtree.ProcessTree;
+
+import static org.eduprom.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class ProcessTreeKeyTest {
+
+    @Test
+    public void orderUnderCommutativeOperatorsIsIgnored() {
+        assertEquals(ProcessTreeKey.of(tree(xor(task("a"), and(task("b"), task("c"))))),
+                ProcessTreeKey.of(tree(xor(and(task("c"), task("b")), task("a")))));
+    }
+
+    @Test
+    public void orderUnderASequenceIsKept() {
+        assertNotEquals(ProcessTreeKey.of(tree(seq(task("a"), task("b")))),
+                ProcessTreeKey.of(tree(seq(task("b"), task("a")))));
+    }
+
+    @Test
+    public void operatorsAndTausAreToldApart() {
+        assertNotEquals(ProcessTreeKey.of(tree(xor(task("a"), task("b")))),
+                ProcessTreeKey.of(tree(and(task("a"), task("b")))));
+        assertNotEquals(ProcessTreeKey.of(tree(xor(task("a"), tau()))),
+                ProcessTreeKey.of(tree(xor(task("a"), task("tau")))));
+    }
+
+    @Test
+    public void keyOfATreeIsMemoized() {
+        ProcessTree tree = tree(seq(task("a"), task("b")));
+
+        assertSame(ProcessTreeKey.of(tree), ProcessTreeKey.of(tree));
+        assertEquals(ProcessTreeKey.of(tree.getRoot()), ProcessTreeKey.of(tree));
+    }
+
+    @Test
+    public void persistentTreeHasTheKeyOfItsTree() throws Exception {
+        ProcessTree tree = tree(seq(task("a"), loop(task("b"), tau(), task("c")), and(task("d"), task("e"))));
+        PersistentProcessTree persistent = PersistentProcessTree.of(tree);
+
+        assertEquals(ProcessTreeKey.of(tree), ProcessTreeKey.of(persistent));
+        assertEquals(ProcessTreeKey.of(tree), ProcessTreeKey.of(persistent.toProcessTree()));
+    }
+}